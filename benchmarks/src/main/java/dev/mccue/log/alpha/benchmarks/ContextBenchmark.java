@@ -0,0 +1,92 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Log;
+import dev.mccue.log.alpha.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextBenchmark {
+    static final Log.Category CATEGORY = new Log.Category("dev.mccue.log.alpha.benchmarks", "context");
+    static final Logger LOGGER = log -> {
+    };
+
+    @Param({"1", "5", "10"})
+    int depth;
+
+    Log.Event event;
+    Log.Event eventInSpans;
+    List<Log.Entry> entries;
+    String outermostKey;
+
+    @Setup
+    public void setup() {
+        entries = List.of(Log.Entry.of("request-id", "abc"), Log.Entry.of("attempt", 1));
+        event = nest(depth);
+        eventInSpans = nestSpans(depth);
+        outermostKey = "depth-" + depth;
+    }
+
+    private Log.Event nest(int remaining) {
+        if (remaining == 0) {
+            return new Log.Event(Log.Level.INFO, CATEGORY, List.of(Log.Entry.of("done", true)));
+        } else {
+            return Log.withContext(
+                    List.of(Log.Entry.of("depth-" + remaining, remaining)),
+                    () -> nest(remaining - 1)
+            );
+        }
+    }
+
+    private Log.Event nestSpans(int remaining) {
+        if (remaining == 0) {
+            return new Log.Event(Log.Level.INFO, CATEGORY, List.of(Log.Entry.of("done", true)));
+        } else {
+            return LOGGER.span(Log.Level.INFO, CATEGORY, List.of(), () -> nestSpans(remaining - 1));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (var entry : event) {
+            bh.consume(entry);
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void iterateContended(Blackhole bh) {
+        for (var entry : event) {
+            bh.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public Object lookupOutermost() {
+        return event.get(outermostKey);
+    }
+
+    @Benchmark
+    public Object rootSpan() {
+        return eventInSpans.context().rootSpan();
+    }
+
+    @Benchmark
+    public Object withContext() {
+        return Log.withContext(entries, () -> CATEGORY);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object withContextContended() {
+        return Log.withContext(entries, () -> CATEGORY);
+    }
+}
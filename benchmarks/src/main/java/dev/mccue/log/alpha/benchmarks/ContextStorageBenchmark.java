@@ -0,0 +1,165 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Log;
+import dev.mccue.log.alpha.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scoped value and thread local backends for context storage.
+ *
+ * <p>Each fork is a fresh JVM, so the backend is picked by setting the system property before
+ * the library is first touched. The scoped backend needs to be run on a JVM with ScopedValue,
+ * otherwise it falls back to a thread local and says so on stderr. Forks are started with
+ * {@code --enable-preview}, which JDK 21 through 24 need for it.</p>
+ *
+ * <p>{@code freshThread} logs from a newly started virtual thread. Run it with {@code -prof gc}
+ * to see what each backend allocates per thread. {@code retainedPerThread} parks thousands of
+ * virtual threads inside a context and reports how much heap each one keeps alive, as the
+ * {@code retainedBytesPerThread} secondary result.</p>
+ *
+ * <p>Virtual threads are started through method handles since the benchmarks are built for Java 17.
+ * Without them, platform threads are used instead and that is reported on stderr.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class ContextStorageBenchmark {
+    static final Log.Category CATEGORY = new Log.Category("dev.mccue.log.alpha.benchmarks", "context-storage");
+    static final int PARKED_THREADS = 10_000;
+
+    // Thread.ofVirtual().unstarted(Runnable), or null before Java 21.
+    private static final MethodHandle UNSTARTED_VIRTUAL;
+
+    static {
+        MethodHandle unstartedVirtual;
+        try {
+            var lookup = MethodHandles.publicLookup();
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            var builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass))
+                    .invoke();
+            unstartedVirtual = lookup.findVirtual(
+                    builderClass,
+                    "unstarted",
+                    MethodType.methodType(Thread.class, Runnable.class)
+            ).bindTo(builder);
+        } catch (Throwable t) {
+            System.err.println("Virtual threads are not available (" + t + "). Using platform threads.");
+            unstartedVirtual = null;
+        }
+        UNSTARTED_VIRTUAL = unstartedVirtual;
+    }
+
+    @Param({"scoped", "thread-local"})
+    String storage;
+
+    List<Log.Entry> entries;
+    Logger logger;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        System.setProperty("dev.mccue.log.alpha.contextStorage", storage);
+        entries = List.of(Log.Entry.of("request-id", "abc"));
+        logger = bh::consume;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerThread;
+    }
+
+    static Thread startThread(Runnable runnable) {
+        Thread thread;
+        if (UNSTARTED_VIRTUAL == null) {
+            thread = new Thread(runnable);
+        } else {
+            try {
+                thread = (Thread) UNSTARTED_VIRTUAL.invokeExact(runnable);
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+        thread.start();
+        return thread;
+    }
+
+    static long usedHeapAfterGc() {
+        var memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public Object current() {
+        return Log.Context.current();
+    }
+
+    @Benchmark
+    public Object currentInContext() {
+        return Log.withContext(entries, Log.Context::current);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object currentInContextContended() {
+        return Log.withContext(entries, Log.Context::current);
+    }
+
+    @Benchmark
+    public Object span() {
+        return logger.span(Log.Level.INFO, CATEGORY, entries, Log.Context::current);
+    }
+
+    @Benchmark
+    public void freshThread() throws InterruptedException {
+        startThread(() -> Log.withContext(entries, () -> logger.info(CATEGORY))).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    // Event counters are summed across iterations, so one measured iteration keeps the result per thread.
+    @Measurement(iterations = 1)
+    public void retainedPerThread(Footprint footprint) throws InterruptedException {
+        var ready = new CountDownLatch(PARKED_THREADS);
+        var release = new CountDownLatch(1);
+        var threads = new Thread[PARKED_THREADS];
+
+        var before = usedHeapAfterGc();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = startThread(() -> Log.withContext(entries, () -> {
+                logger.info(CATEGORY);
+                ready.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        ready.await();
+        var after = usedHeapAfterGc();
+
+        release.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        footprint.retainedBytesPerThread = (after - before) / PARKED_THREADS;
+    }
+}
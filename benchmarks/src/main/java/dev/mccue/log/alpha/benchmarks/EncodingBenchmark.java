@@ -0,0 +1,68 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.BinaryLogDecoder;
+import dev.mccue.log.alpha.BinaryLogEncoder;
+import dev.mccue.log.alpha.JsonLogEncoder;
+import dev.mccue.log.alpha.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+    static final Log.Category CATEGORY = new Log.Category("dev.mccue.log.alpha.benchmarks", "encoding");
+
+    Log.Event event;
+    JsonLogEncoder json;
+    BinaryLogEncoder binary;
+    BinaryLogDecoder decoder;
+    ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        event = Log.withContext(
+                List.of(Log.Entry.of("request-id", UUID.randomUUID()), Log.Entry.of("user-id", 12345)),
+                () -> new Log.Event(
+                        Log.Level.INFO,
+                        CATEGORY,
+                        List.of(
+                                Log.Entry.of("path", "/api/users/12345"),
+                                Log.Entry.of("status", 200),
+                                Log.Entry.of("took", Duration.ofNanos(1_234_567)),
+                                Log.Entry.of("at", Instant.now()),
+                                Log.Entry.of("cached", false)
+                        )
+                )
+        );
+        json = new JsonLogEncoder();
+        binary = new BinaryLogEncoder();
+        decoder = new BinaryLogDecoder();
+        var bytes = binary.encode(event);
+        encoded = ByteBuffer.allocate(bytes.remaining()).put(bytes).flip();
+    }
+
+    @Benchmark
+    public ByteBuffer json() {
+        return json.encode(event);
+    }
+
+    @Benchmark
+    public ByteBuffer binary() {
+        return binary.encode(event);
+    }
+
+    @Benchmark
+    public BinaryLogDecoder.Record binaryDecode() {
+        return decoder.decode(encoded.duplicate());
+    }
+}
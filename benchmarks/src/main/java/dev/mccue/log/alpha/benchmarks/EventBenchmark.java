@@ -0,0 +1,52 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBenchmark {
+    static final Log.Category CATEGORY = new Log.Category("dev.mccue.log.alpha.benchmarks", "event");
+
+    List<Log.Entry> entries;
+
+    @Setup
+    public void setup() {
+        entries = List.of(
+                Log.Entry.of("user-id", 12345),
+                Log.Entry.of("name", "bob"),
+                Log.Entry.of("admin", false)
+        );
+    }
+
+    @Benchmark
+    public Log.Event event() {
+        return new Log.Event(Log.Level.INFO, CATEGORY, entries);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Log.Event eventContended() {
+        return new Log.Event(Log.Level.INFO, CATEGORY, entries);
+    }
+
+    @Benchmark
+    public Log.Event eventFromVarargs() {
+        return new Log.Event(
+                Log.Level.INFO,
+                CATEGORY,
+                List.of(
+                        Log.Entry.of("user-id", 12345),
+                        Log.Entry.of("name", "bob"),
+                        Log.Entry.of("admin", false)
+                )
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Flake;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlakeBenchmark {
+    Flake flake;
+    String formatted;
+    byte[] formattedBytes;
+    byte[] buffer;
+
+    @Setup
+    public void setup() {
+        flake = Flake.create();
+        formatted = Flake.formatFlake(flake);
+        formattedBytes = formatted.getBytes(StandardCharsets.US_ASCII);
+        buffer = new byte[Flake.FORMATTED_HEX_LENGTH];
+    }
+
+    @Benchmark
+    public Flake create() {
+        return Flake.create();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Flake createContended() {
+        return Flake.create();
+    }
+
+    @Benchmark
+    public String formatFlake() {
+        return Flake.formatFlake(flake);
+    }
+
+    @Benchmark
+    public String formatFlakeHex() {
+        return Flake.formatFlakeHex(flake);
+    }
+
+    @Benchmark
+    public byte[] formatFlakeIntoBuffer() {
+        Flake.formatFlake(flake, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] formatFlakeHexIntoBuffer() {
+        Flake.formatFlakeHex(flake, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public Flake parseFlake() {
+        return Flake.parseFlake(formatted);
+    }
+
+    @Benchmark
+    public Flake parseFlakeFromBytes() {
+        return Flake.parseFlake(formattedBytes, 0, formattedBytes.length);
+    }
+
+    @Benchmark
+    public String createAndFormat() {
+        return Flake.formatFlake(Flake.create());
+    }
+}
@@ -0,0 +1,52 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Logger;
+import dev.mccue.log.alpha.LoggerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what application startup pays for looking up loggers.
+ *
+ * <p>Each fork is a fresh JVM doing what a few thousand classes with a static logger field would,
+ * measured once. {@code uncached} repeats the lookup the way {@code LoggerFactory} used to, with a
+ * service scan and a new namespaced logger for every call.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class LoggerFactoryBenchmark {
+    static final int CLASSES = 5_000;
+
+    String[] namespaces;
+
+    @Setup
+    public void setup() {
+        namespaces = new String[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            namespaces[i] = "com.example.generated.Class" + i;
+        }
+    }
+
+    @Benchmark
+    public void cached(Blackhole bh) {
+        for (var namespace : namespaces) {
+            bh.consume(LoggerFactory.getLogger(namespace));
+        }
+    }
+
+    @Benchmark
+    public void uncached(Blackhole bh) {
+        for (var namespace : namespaces) {
+            var factory = ServiceLoader.load(LoggerFactory.class).iterator().next();
+            Logger logger = factory.createLogger();
+            bh.consume(logger.namespaced(namespace));
+        }
+    }
+}
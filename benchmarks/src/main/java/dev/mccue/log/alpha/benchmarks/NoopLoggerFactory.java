@@ -0,0 +1,15 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Logger;
+import dev.mccue.log.alpha.LoggerFactory;
+
+/**
+ * Provided as a service so that benchmarks which look up a logger have something to find.
+ */
+public final class NoopLoggerFactory implements LoggerFactory {
+    @Override
+    public Logger createLogger() {
+        return log -> {
+        };
+    }
+}
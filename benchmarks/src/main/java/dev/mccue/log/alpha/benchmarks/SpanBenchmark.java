@@ -0,0 +1,66 @@
+package dev.mccue.log.alpha.benchmarks;
+
+import dev.mccue.log.alpha.Log;
+import dev.mccue.log.alpha.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpanBenchmark {
+    static final Log.Category CATEGORY = new Log.Category("dev.mccue.log.alpha.benchmarks", "span");
+
+    Logger logger;
+    Logger disabled;
+    List<Log.Entry> entries;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        logger = bh::consume;
+        disabled = new Logger() {
+            @Override
+            public void log(Log log) {
+                bh.consume(log);
+            }
+
+            @Override
+            public boolean isEnabled(Log.Level level, Log.Category category) {
+                return false;
+            }
+        };
+        entries = List.of(Log.Entry.of("user-id", 12345));
+    }
+
+    @Benchmark
+    public Object span() {
+        return logger.span(Log.Level.INFO, CATEGORY, entries, () -> CATEGORY);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object spanContended() {
+        return logger.span(Log.Level.INFO, CATEGORY, entries, () -> CATEGORY);
+    }
+
+    @Benchmark
+    public Object spanDisabled() {
+        return disabled.span(Log.Level.INFO, CATEGORY, entries, () -> CATEGORY);
+    }
+
+    @Benchmark
+    public void event() {
+        logger.info(CATEGORY, Log.Entry.of("user-id", 12345));
+    }
+
+    @Benchmark
+    public void eventDisabled() {
+        disabled.info(CATEGORY, Log.Entry.of("user-id", 12345));
+    }
+}
@@ -0,0 +1,467 @@
+package dev.mccue.log.alpha;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A logger which hands logs off to another logger running on a dedicated thread.
+ *
+ * <p>Logs are placed into a preallocated ring buffer which can be written to from any number
+ * of threads. The thread doing the logging only pays for constructing the {@link Log} and
+ * claiming a slot in the buffer. A single consumer thread drains the buffer in batches and
+ * passes each log along to the wrapped logger, so the wrapped logger does not need to be
+ * safe to call from multiple threads at once. After the logger is closed, logs are handed off
+ * on the threads doing logging instead, one at a time.</p>
+ *
+ * {@snippet :
+ * var logger = new AsyncLogger(LoggerFactory.getLogger());
+ * Runtime.getRuntime().addShutdownHook(new Thread(logger::close));
+ * }
+ *
+ * <p>What happens when the buffer is full is decided by the {@link OverflowPolicy}. By default,
+ * threads doing logging will wait for space using the configured {@link WaitStrategy}.</p>
+ *
+ * <p>Logs which are dropped are counted by category and level. Once the consumer thread has
+ * caught up, the counts are handed off as {@link Log.Level#WARN} events with the category
+ * {@code dev.mccue.log.alpha/dropped}.</p>
+ */
+public final class AsyncLogger implements Logger, AutoCloseable {
+    static final Log.Category DROPPED = new Log.Category("dev.mccue.log.alpha", "dropped");
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long PARK_NANOS = 50_000;
+    private static final Log.Level[] LEVELS = Log.Level.values();
+
+    private final Logger logger;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final int mask;
+
+    // Bounded multi-producer queue in the style of Dmitry Vyukov's. Each slot carries a
+    // sequence number which tells producers and the consumer whose turn it is.
+    private final AtomicReferenceArray<Log> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final AtomicLong head;
+    private final AtomicLong completed;
+    private final LongAdder dropped;
+    private final ConcurrentHashMap<Log.Category, LongAdder[]> droppedByCategory;
+    // Set when something is dropped, cleared by the consumer when it reports.
+    private volatile boolean dropsToReport;
+
+    private final Thread consumer;
+    private volatile boolean closed;
+    // Held by whichever thread is handing logs off, so the wrapped logger only sees one thread at a time.
+    // That is the consumer for each batch, a thread doing logging when it overflows synchronously,
+    // or any thread doing logging once the consumer has stopped.
+    private final ReentrantLock handingOff;
+
+    /**
+     * How threads should wait when there is nothing for them to do.
+     *
+     * <p>This applies both to the consumer thread when the buffer is empty and to
+     * logging threads when the buffer is full.</p>
+     */
+    public enum WaitStrategy {
+        /**
+         * Busy spin. Lowest latency, but burns a core.
+         */
+        SPIN,
+        /**
+         * Yield to other threads between checks.
+         */
+        YIELD,
+        /**
+         * Park for a short amount of time between checks.
+         */
+        PARK;
+
+        void idle() {
+            switch (this) {
+                case SPIN -> Thread.onSpinWait();
+                case YIELD -> Thread.yield();
+                case PARK -> LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * What to do with a log when the buffer is full.
+     */
+    public sealed interface OverflowPolicy {
+        /**
+         * Wait for space using the {@link WaitStrategy}. Nothing is lost, but a slow logger
+         * slows down every thread doing logging.
+         */
+        enum Block implements OverflowPolicy {
+            INSTANCE
+        }
+
+        /**
+         * Drop the log being logged. The thread doing logging never waits.
+         */
+        enum DropNewest implements OverflowPolicy {
+            INSTANCE
+        }
+
+        /**
+         * Drop the log which has been waiting the longest to make room. The thread doing logging
+         * never waits, and the most recent logs are kept.
+         */
+        enum DropOldest implements OverflowPolicy {
+            INSTANCE
+        }
+
+        /**
+         * Drop logs less severe than the given level, and handle the rest with another policy.
+         *
+         * {@snippet :
+         * // Shed TRACE, DEBUG and INFO, wait for space for WARN and ERROR.
+         * new AsyncLogger.OverflowPolicy.DropBelow(Log.Level.WARN, AsyncLogger.OverflowPolicy.Block.INSTANCE);
+         * }
+         *
+         * @param level     The least severe level which is not dropped.
+         * @param otherwise What to do with logs at or above the level.
+         */
+        record DropBelow(Log.Level level, OverflowPolicy otherwise) implements OverflowPolicy {
+            public DropBelow {
+                Objects.requireNonNull(level, "level must not be null");
+                Objects.requireNonNull(otherwise, "otherwise must not be null");
+            }
+        }
+
+        /**
+         * Hand the log off on the thread doing logging. Nothing is lost and threads never wait
+         * for space, but the log may be handed off before ones which were queued earlier.
+         *
+         * <p>The wrapped logger is still only called by one thread at a time. A thread doing
+         * logging waits for the consumer to finish its current batch before handing off.</p>
+         */
+        enum Synchronous implements OverflowPolicy {
+            INSTANCE
+        }
+    }
+
+    /**
+     * Creates an async logger with a default capacity that parks when idle.
+     *
+     * @param logger The logger to hand logs off to.
+     */
+    public AsyncLogger(Logger logger) {
+        this(logger, DEFAULT_CAPACITY, WaitStrategy.PARK);
+    }
+
+    /**
+     * @param logger       The logger to hand logs off to.
+     * @param capacity     The number of logs which can be waiting to be handed off. Will be rounded
+     *                     up to a power of two.
+     * @param waitStrategy How to wait when there is nothing to do.
+     */
+    public AsyncLogger(Logger logger, int capacity, WaitStrategy waitStrategy) {
+        this(logger, capacity, waitStrategy, OverflowPolicy.Block.INSTANCE);
+    }
+
+    /**
+     * @param logger         The logger to hand logs off to.
+     * @param capacity       The number of logs which can be waiting to be handed off. Will be rounded
+     *                       up to a power of two.
+     * @param waitStrategy   How to wait when there is nothing to do.
+     * @param overflowPolicy What to do with logs when the buffer is full.
+     */
+    public AsyncLogger(Logger logger, int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy must not be null");
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+
+        var size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.droppedByCategory = new ConcurrentHashMap<>();
+
+        this.handingOff = new ReentrantLock();
+        this.consumer = new Thread(this::consume, "dev.mccue.log.alpha.AsyncLogger");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        return logger.isEnabled(level, category);
+    }
+
+    /**
+     * Queues the log to be handed off.
+     *
+     * <p>After this logger is closed, logs are handed off on the calling thread instead.</p>
+     *
+     * @param log The log to log.
+     */
+    @Override
+    public void log(Log log) {
+        Objects.requireNonNull(log, "log must not be null");
+        while (!offer(log)) {
+            if (closed) {
+                // Anything still queued goes first, to keep the order logs were queued in.
+                awaitConsumer();
+                handingOff.lock();
+                try {
+                    drain();
+                    handOff(log);
+                } finally {
+                    handingOff.unlock();
+                }
+                return;
+            }
+            if (!overflow(overflowPolicy, log)) {
+                return;
+            }
+        }
+
+        if (closed) {
+            // The consumer might have already stopped without seeing this log.
+            awaitConsumer();
+            handingOff.lock();
+            try {
+                drain();
+            } finally {
+                handingOff.unlock();
+            }
+        }
+    }
+
+    /**
+     * Handles a log which didn't fit in the buffer.
+     *
+     * @return Whether to try to queue the log again.
+     */
+    private boolean overflow(OverflowPolicy policy, Log log) {
+        if (policy instanceof OverflowPolicy.DropBelow dropBelow) {
+            if (log.level().compareTo(dropBelow.level()) < 0) {
+                drop(log);
+                return false;
+            } else {
+                return overflow(dropBelow.otherwise(), log);
+            }
+        } else if (policy == OverflowPolicy.DropNewest.INSTANCE) {
+            drop(log);
+            return false;
+        } else if (policy == OverflowPolicy.DropOldest.INSTANCE) {
+            var oldest = poll();
+            if (oldest != null) {
+                drop(oldest);
+            }
+            return true;
+        } else if (policy == OverflowPolicy.Synchronous.INSTANCE) {
+            handingOff.lock();
+            try {
+                handOff(log);
+            } finally {
+                handingOff.unlock();
+            }
+            return false;
+        } else {
+            waitStrategy.idle();
+            return true;
+        }
+    }
+
+    private void drop(Log log) {
+        dropped.increment();
+        var forCategory = droppedByCategory.get(log.category());
+        if (forCategory == null) {
+            forCategory = droppedByCategory.computeIfAbsent(log.category(), __ -> {
+                var counts = new LongAdder[LEVELS.length];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = new LongAdder();
+                }
+                return counts;
+            });
+        }
+        forCategory[log.level().ordinal()].increment();
+        if (!dropsToReport) {
+            dropsToReport = true;
+        }
+    }
+
+    /**
+     * Hands off a count of everything dropped since the last report. Only called by the consumer,
+     * while handing off.
+     */
+    private void reportDrops() {
+        dropsToReport = false;
+        droppedByCategory.forEach((category, forCategory) -> {
+            for (var level : LEVELS) {
+                var dropped = forCategory[level.ordinal()].sumThenReset();
+                if (dropped > 0) {
+                    handOff(new Log.Event(Log.Level.WARN, DROPPED, List.of(
+                            Log.Entry.of("namespace", category.namespace()),
+                            Log.Entry.of("name", category.name()),
+                            Log.Entry.of("level", level.name()),
+                            Log.Entry.of("dropped", dropped)
+                    )));
+                }
+            }
+        });
+    }
+
+    boolean offer(Log log) {
+        var pos = tail.get();
+        while (true) {
+            var index = (int) pos & mask;
+            var difference = sequences.get(index) - pos;
+            if (difference == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, log);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    Log poll() {
+        var pos = head.get();
+        while (true) {
+            var index = (int) pos & mask;
+            var difference = sequences.get(index) - (pos + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    var log = slots.get(index);
+                    slots.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return log;
+                }
+                pos = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    private void consume() {
+        while (true) {
+            var drained = 0;
+            handingOff.lock();
+            try {
+                Log log;
+                while (drained < MAX_BATCH_SIZE && (log = poll()) != null) {
+                    handOff(log);
+                    drained++;
+                }
+
+                completed.set(head.get());
+
+                // Running out of logs before filling a batch means the consumer has caught up.
+                if (drained < MAX_BATCH_SIZE && dropsToReport) {
+                    reportDrops();
+                }
+            } finally {
+                handingOff.unlock();
+            }
+
+            if (drained == 0) {
+                if (closed && tail.get() == head.get()) {
+                    return;
+                }
+                waitStrategy.idle();
+            }
+        }
+    }
+
+    private void drain() {
+        Log log;
+        while ((log = poll()) != null) {
+            handOff(log);
+        }
+    }
+
+    private void awaitConsumer() {
+        if (Thread.currentThread() == consumer) {
+            return;
+        }
+
+        var interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff(Log log) {
+        try {
+            logger.log(log);
+        } catch (Throwable t) {
+            System.err.println("Failed to hand off log: " + log);
+            t.printStackTrace();
+        }
+    }
+
+    /**
+     * @return How many logs have been dropped because the buffer was full, in total.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits until every log queued before this call has been handed off.
+     */
+    public void flush() {
+        var target = tail.get();
+        while (completed.get() < target && consumer.isAlive()) {
+            waitStrategy.idle();
+        }
+    }
+
+    /**
+     * Stops accepting logs, hands off any logs already queued, and stops the consumer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        awaitConsumer();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncLogger[logger=" + logger + ", capacity=" + (mask + 1) + ", waitStrategy=" + waitStrategy
+                + ", overflowPolicy=" + overflowPolicy + "]";
+    }
+}
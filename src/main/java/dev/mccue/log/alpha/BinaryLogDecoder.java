@@ -0,0 +1,455 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+import static dev.mccue.log.alpha.BinaryLogFormat.*;
+
+/**
+ * Reads logs written by a {@link BinaryLogEncoder}.
+ *
+ * <p>Records are decoded straight from the bytes they are stored in. A decoder keeps a small
+ * amount of scratch space, so it should not be shared between threads.</p>
+ *
+ * {@snippet :
+ * var decoder = new BinaryLogDecoder();
+ * try (var channel = FileChannel.open(path)) {
+ *     BinaryLogDecoder.Record record;
+ *     while ((record = decoder.read(channel)) != null) {
+ *         System.out.println(record);
+ *     }
+ * }
+ * }
+ */
+public final class BinaryLogDecoder {
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private ByteBuffer readBuffer;
+    private byte[] scratch;
+    private ByteBuffer in;
+
+    public BinaryLogDecoder() {
+        this.readBuffer = ByteBuffer.allocate(INITIAL_CAPACITY).flip();
+        this.scratch = new byte[256];
+    }
+
+    /**
+     * A decoded log.
+     *
+     * @param flake      The flake of the log.
+     * @param level      The level of the log.
+     * @param category   The category of the log.
+     * @param thread     The thread the log was made on.
+     * @param occurrence When the log happened.
+     * @param outcome    The outcome for a span, null for an event.
+     * @param entries    The entries of the log.
+     * @param context    The context of the log, nearest first. Always ends with a {@link Context.Global}.
+     */
+    public record Record(
+            Flake flake,
+            Log.Level level,
+            Log.Category category,
+            Log.ThreadInfo thread,
+            Log.Occurrence occurrence,
+            Log.Span.Outcome outcome,
+            List<Log.Entry> entries,
+            List<Context> context
+    ) {
+        public Record {
+            Objects.requireNonNull(flake, "flake must not be null");
+            Objects.requireNonNull(level, "level must not be null");
+            Objects.requireNonNull(category, "category must not be null");
+            Objects.requireNonNull(thread, "thread must not be null");
+            Objects.requireNonNull(occurrence, "occurrence must not be null");
+            entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+            context = List.copyOf(Objects.requireNonNull(context, "context must not be null"));
+        }
+
+        /**
+         * A decoded node in the context of a log.
+         */
+        public sealed interface Context {
+            record Plain(List<Log.Entry> entries) implements Context {
+                public Plain {
+                    entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+                }
+            }
+
+            record Span(Flake spanId, Instant startedAt, Log.ThreadInfo thread) implements Context {
+                public Span {
+                    Objects.requireNonNull(spanId, "spanId must not be null");
+                    Objects.requireNonNull(startedAt, "startedAt must not be null");
+                    Objects.requireNonNull(thread, "thread must not be null");
+                }
+            }
+
+            record Global(List<Log.Entry> entries) implements Context {
+                public Global {
+                    entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stands in for a throwable which was encoded.
+     *
+     * <p>The original class might not exist where the log is decoded, so this carries its name
+     * along with the message, stack trace, cause and suppressed throwables.</p>
+     */
+    public static final class DecodedThrowable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        public DecodedThrowable(String className, String message, Throwable cause) {
+            super(message, cause);
+            this.className = Objects.requireNonNull(className, "className must not be null");
+        }
+
+        /**
+         * @return The name of the class of the original throwable.
+         */
+        public String className() {
+            return className;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            var message = getLocalizedMessage();
+            return message == null ? className : className + ": " + message;
+        }
+    }
+
+    /**
+     * Decodes the record at the position of the buffer, if all of it is there.
+     *
+     * @param in The buffer to read from.
+     * @return The record, or null if the buffer does not hold a complete record. In that case
+     * the position of the buffer is left unchanged.
+     * @throws IllegalArgumentException If the record is malformed. The buffer's position will be after it.
+     */
+    public Record decode(ByteBuffer in) {
+        if (in.remaining() < HEADER_SIZE) {
+            return null;
+        }
+
+        var start = in.position();
+        var length = in.getInt(start);
+        if (length < 0) {
+            throw new IllegalArgumentException("Malformed log record: negative length");
+        }
+        if (in.remaining() - HEADER_SIZE < length) {
+            return null;
+        }
+
+        var end = start + HEADER_SIZE + length;
+        var limit = in.limit();
+        in.position(start + HEADER_SIZE).limit(end);
+        this.in = in;
+        try {
+            var record = readRecord();
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Malformed log record: trailing bytes");
+            }
+            return record;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed log record: truncated", e);
+        } catch (DateTimeException | ArithmeticException e) {
+            // Temporal values whose fields are out of range, like a time of day past midnight.
+            throw new IllegalArgumentException("Malformed log record: time out of range", e);
+        } finally {
+            this.in = null;
+            in.limit(limit).position(end);
+        }
+    }
+
+    /**
+     * Reads the next record from the channel.
+     *
+     * <p>Bytes are read ahead into a buffer kept by this decoder, so the same decoder should be used for
+     * every read from a channel.</p>
+     *
+     * @param channel The channel to read from.
+     * @return The record, or null if the channel is at its end.
+     * @throws IOException If reading from the channel fails, or it ends partway through a record.
+     */
+    public Record read(ReadableByteChannel channel) throws IOException {
+        while (true) {
+            var record = decode(readBuffer);
+            if (record != null) {
+                return record;
+            }
+
+            if (readBuffer.remaining() >= HEADER_SIZE) {
+                var needed = HEADER_SIZE + readBuffer.getInt(readBuffer.position());
+                if (needed > readBuffer.capacity()) {
+                    var grown = ByteBuffer.allocate(Math.max(needed, readBuffer.capacity() * 2));
+                    grown.put(readBuffer).flip();
+                    readBuffer = grown;
+                }
+            }
+
+            readBuffer.compact();
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } finally {
+                readBuffer.flip();
+            }
+            if (read == -1) {
+                if (readBuffer.hasRemaining()) {
+                    throw new IOException("Channel ended partway through a log record");
+                }
+                return null;
+            }
+        }
+    }
+
+    private Record readRecord() {
+        var kind = in.get();
+        if (kind != EVENT && kind != SPAN) {
+            throw new IllegalArgumentException("Malformed log record: unknown kind " + kind);
+        }
+
+        var level = readLevel();
+        var category = new Log.Category(readString(), readString());
+        var flake = readFlake();
+        var thread = readThread();
+
+        Log.Occurrence occurrence;
+        Log.Span.Outcome outcome;
+        if (kind == EVENT) {
+            occurrence = new Log.Occurrence.PointInTime(readInstant());
+            outcome = null;
+        } else {
+            occurrence = new Log.Occurrence.SpanOfTime(readNanos(), readNanos());
+            var outcomeTag = in.get();
+            if (outcomeTag == OK) {
+                outcome = Log.Span.Outcome.Ok.INSTANCE;
+            } else if (outcomeTag == ERROR) {
+                outcome = new Log.Span.Outcome.Error(readThrowable(0));
+            } else {
+                throw new IllegalArgumentException("Malformed log record: unknown outcome " + outcomeTag);
+            }
+        }
+
+        var entries = readEntries();
+        var context = new ArrayList<Record.Context>();
+        while (true) {
+            var tag = in.get();
+            if (tag == CONTEXT_PLAIN) {
+                context.add(new Record.Context.Plain(readEntries()));
+            } else if (tag == CONTEXT_SPAN) {
+                context.add(new Record.Context.Span(readFlake(), readInstant(), readThread()));
+            } else if (tag == CONTEXT_GLOBAL) {
+                context.add(new Record.Context.Global(readEntries()));
+                break;
+            } else {
+                throw new IllegalArgumentException("Malformed log record: unknown context " + tag);
+            }
+        }
+
+        return new Record(flake, level, category, thread, occurrence, outcome, entries, context);
+    }
+
+    private Log.ThreadInfo readThread() {
+        return new Log.ThreadInfo(readZigzag(), readString(), in.get() != 0);
+    }
+
+    private Log.Level readLevel() {
+        var ordinal = in.get();
+        var levels = Log.Level.values();
+        if (ordinal < 0 || ordinal >= levels.length) {
+            throw new IllegalArgumentException("Malformed log record: unknown level " + ordinal);
+        }
+        return levels[ordinal];
+    }
+
+    private List<Log.Entry> readEntries() {
+        var count = readCount();
+        var entries = new Log.Entry[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new Log.Entry(readString(), readValue(0));
+        }
+        // Nothing else sees the array, and the record constructors keep Entries as they are.
+        return Entries.wrap(entries);
+    }
+
+    private Log.Entry.Value readValue(int depth) {
+        if (depth > MAX_VALUE_DEPTH) {
+            throw new IllegalArgumentException("Malformed log record: values nested too deeply");
+        }
+        var tag = in.get();
+        return switch (tag) {
+            case VALUE_NULL -> Log.Entry.Value.Null.INSTANCE;
+            case VALUE_STRING -> new Log.Entry.Value.String(readString());
+            case VALUE_TRUE -> new Log.Entry.Value.Boolean(true);
+            case VALUE_FALSE -> new Log.Entry.Value.Boolean(false);
+            case VALUE_BYTE -> new Log.Entry.Value.Byte(in.get());
+            case VALUE_CHARACTER -> new Log.Entry.Value.Character((char) readVarint());
+            case VALUE_SHORT -> new Log.Entry.Value.Short((short) readZigzag());
+            case VALUE_INTEGER -> new Log.Entry.Value.Integer((int) readZigzag());
+            case VALUE_LONG -> new Log.Entry.Value.Long(readZigzag());
+            case VALUE_FLOAT -> new Log.Entry.Value.Float(in.getFloat());
+            case VALUE_DOUBLE -> new Log.Entry.Value.Double(in.getDouble());
+            case VALUE_UUID -> new Log.Entry.Value.UUID(new java.util.UUID(in.getLong(), in.getLong()));
+            case VALUE_URI -> new Log.Entry.Value.URI(java.net.URI.create(readString()));
+            case VALUE_INSTANT -> new Log.Entry.Value.Instant(readInstant());
+            case VALUE_LOCAL_DATE_TIME -> new Log.Entry.Value.LocalDateTime(LocalDateTime.of(
+                    LocalDate.ofEpochDay(readZigzag()),
+                    LocalTime.ofNanoOfDay(readVarint())
+            ));
+            case VALUE_LOCAL_DATE -> new Log.Entry.Value.LocalDate(LocalDate.ofEpochDay(readZigzag()));
+            case VALUE_LOCAL_TIME -> new Log.Entry.Value.LocalTime(LocalTime.ofNanoOfDay(readVarint()));
+            case VALUE_DURATION -> new Log.Entry.Value.Duration(readDuration());
+            case VALUE_THROWABLE -> new Log.Entry.Value.Throwable(readThrowable(0));
+            case VALUE_LIST -> {
+                var count = readCount();
+                var values = new ArrayList<Log.Entry.Value>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readValue(depth + 1));
+                }
+                yield new Log.Entry.Value.List(values);
+            }
+            case VALUE_MAP -> {
+                var count = readCount();
+                var values = new HashMap<String, Log.Entry.Value>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    values.put(readString(), readValue(depth + 1));
+                }
+                yield new Log.Entry.Value.Map(values);
+            }
+            case VALUE_SET -> {
+                var count = readCount();
+                var values = new HashSet<Log.Entry.Value>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    values.add(readValue(depth + 1));
+                }
+                yield new Log.Entry.Value.Set(values);
+            }
+            default -> throw new IllegalArgumentException("Malformed log record: unknown value " + tag);
+        };
+    }
+
+    private DecodedThrowable readThrowable(int depth) {
+        if (depth > MAX_THROWABLE_DEPTH) {
+            throw new IllegalArgumentException("Malformed log record: throwables nested too deeply");
+        }
+        var className = readString();
+        var message = readNullableString();
+
+        var stackTrace = new StackTraceElement[readCount()];
+        for (int i = 0; i < stackTrace.length; i++) {
+            var declaringClass = readString();
+            var methodName = readString();
+            var fileName = readNullableString();
+            var lineNumber = (int) readZigzag();
+            stackTrace[i] = new StackTraceElement(declaringClass, methodName, fileName, lineNumber);
+        }
+
+        var cause = in.get() == 1 ? readThrowable(depth + 1) : null;
+        var throwable = new DecodedThrowable(className, message, cause);
+        throwable.setStackTrace(stackTrace);
+
+        var suppressed = readCount();
+        for (int i = 0; i < suppressed; i++) {
+            throwable.addSuppressed(readThrowable(depth + 1));
+        }
+
+        return throwable;
+    }
+
+    private Flake readFlake() {
+        return Flake.makeFlake(in.getLong(), in.getLong(), in.getLong());
+    }
+
+    private Instant readInstant() {
+        return Instant.ofEpochSecond(readZigzag(), readVarint());
+    }
+
+    private Duration readDuration() {
+        return Duration.ofSeconds(readZigzag(), readVarint());
+    }
+
+    private long readNanos() {
+        try {
+            return Math.addExact(Math.multiplyExact(readZigzag(), 1_000_000_000L), readVarint());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Malformed log record: time out of range", e);
+        }
+    }
+
+    private String readNullableString() {
+        var length = readCount();
+        return length == 0 ? null : readString(length - 1);
+    }
+
+    private String readString() {
+        return readString(readCount());
+    }
+
+    private String readString(int length) {
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("Malformed log record: string runs past the end");
+        }
+
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            s = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private int readCount() {
+        var count = readVarint();
+        if (count < 0 || count > in.remaining()) {
+            // Everything takes at least a byte, so this can't be right
+            throw new IllegalArgumentException("Malformed log record: count " + count + " runs past the end");
+        }
+        return (int) count;
+    }
+
+    private long readZigzag() {
+        var value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed log record: varint is too long");
+    }
+}
@@ -0,0 +1,387 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+import static dev.mccue.log.alpha.BinaryLogFormat.*;
+
+/**
+ * Writes logs in a compact binary format which can be read back with a {@link BinaryLogDecoder}.
+ *
+ * <p>Every variant of {@link Log.Entry.Value} is supported, as is the full context chain of a log.
+ * Strings are written straight into the output as UTF-8.</p>
+ *
+ * <p>An encoder keeps a reusable buffer, so it should not be shared between threads.</p>
+ *
+ * {@snippet :
+ * var encoder = new BinaryLogEncoder();
+ * try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+ *     encoder.write(log, channel);
+ * }
+ * }
+ */
+public final class BinaryLogEncoder implements LogEncoder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private ByteBuffer buffer;
+    private ByteBuffer out;
+
+    public BinaryLogEncoder() {
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Encodes the log into a buffer owned by this encoder.
+     *
+     * @param log The log to encode.
+     * @return A buffer holding exactly one record between its position and limit. Only valid until the
+     * next call to this encoder.
+     */
+    @Override
+    public ByteBuffer encode(Log log) {
+        Objects.requireNonNull(log, "log must not be null");
+        buffer.clear();
+        out = buffer;
+        try {
+            writeRecord(log);
+        } finally {
+            out = null;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Encodes the log directly into the given buffer, starting at its position.
+     *
+     * @param log The log to encode.
+     * @param dst The buffer to write to. Its position will be advanced past the record.
+     * @throws BufferOverflowException If the record does not fit. The position of the buffer is left unchanged.
+     */
+    public void encode(Log log, ByteBuffer dst) {
+        Objects.requireNonNull(log, "log must not be null");
+        var start = dst.position();
+        out = dst;
+        try {
+            writeRecord(log);
+        } catch (BufferOverflowException e) {
+            dst.position(start);
+            throw e;
+        } finally {
+            out = null;
+        }
+    }
+
+    /**
+     * Encodes the log and writes it to the given channel.
+     *
+     * @param log     The log to encode.
+     * @param channel The channel to write to.
+     * @throws IOException If writing to the channel fails.
+     */
+    public void write(Log log, WritableByteChannel channel) throws IOException {
+        var encoded = encode(log);
+        while (encoded.hasRemaining()) {
+            channel.write(encoded);
+        }
+    }
+
+    private void writeRecord(Log log) {
+        ensure(HEADER_SIZE);
+        var start = out.position();
+        out.position(start + HEADER_SIZE);
+
+        if (log instanceof Log.Event event) {
+            writeByte(EVENT);
+            writeHeader(log);
+            writeInstant(event.occurrence().happenedAt());
+        } else if (log instanceof Log.Span span) {
+            writeByte(SPAN);
+            writeHeader(log);
+            writeNanos(span.occurrence().startedAtNanos());
+            writeNanos(span.occurrence().lastedNanos());
+            if (span.outcome() instanceof Log.Span.Outcome.Error error) {
+                writeByte(ERROR);
+                writeThrowable(error.throwable(), 0);
+            } else {
+                writeByte(OK);
+            }
+        }
+
+        writeEntries(log.entries());
+        writeContext(log.context());
+
+        out.putInt(start, out.position() - start - HEADER_SIZE);
+    }
+
+    private void writeHeader(Log log) {
+        writeByte((byte) log.level().ordinal());
+        writeString(log.category().namespace());
+        writeString(log.category().name());
+        writeFlake(log.flake());
+        writeThread(log.thread());
+    }
+
+    private void writeContext(Log.Context context) {
+        while (context instanceof Log.Context.Child child) {
+            if (child instanceof Log.Context.Child.Plain plain) {
+                writeByte(CONTEXT_PLAIN);
+                writeEntries(plain.entries());
+            } else if (child instanceof Log.Context.Child.Span span) {
+                writeByte(CONTEXT_SPAN);
+                writeFlake(span.spanId());
+                writeNanos(span.startedAtNanos());
+                writeThread(span.thread());
+            }
+            context = child.parent();
+        }
+
+        writeByte(CONTEXT_GLOBAL);
+        writeEntries(((Log.Context.Global) context).entries());
+    }
+
+    private void writeEntries(List<Log.Entry> entries) {
+        writeVarint(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            var entry = entries.get(i);
+            writeString(entry.key());
+            writeValue(entry.value());
+        }
+    }
+
+    private void writeValue(Log.Entry.Value value) {
+        if (value instanceof Log.Entry.Value.Lazy lazy) {
+            value = lazy.value();
+        }
+
+        if (value instanceof Log.Entry.Value.String s) {
+            writeByte(VALUE_STRING);
+            writeString(s.value());
+        } else if (value instanceof Log.Entry.Value.Boolean b) {
+            writeByte(b.value() ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof Log.Entry.Value.Byte b) {
+            writeByte(VALUE_BYTE);
+            writeByte(b.value());
+        } else if (value instanceof Log.Entry.Value.Character c) {
+            writeByte(VALUE_CHARACTER);
+            writeVarint(c.value());
+        } else if (value instanceof Log.Entry.Value.Short s) {
+            writeByte(VALUE_SHORT);
+            writeZigzag(s.value());
+        } else if (value instanceof Log.Entry.Value.Integer i) {
+            writeByte(VALUE_INTEGER);
+            writeZigzag(i.value());
+        } else if (value instanceof Log.Entry.Value.Long l) {
+            writeByte(VALUE_LONG);
+            writeZigzag(l.value());
+        } else if (value instanceof Log.Entry.Value.Float f) {
+            writeByte(VALUE_FLOAT);
+            ensure(4);
+            out.putFloat(f.value());
+        } else if (value instanceof Log.Entry.Value.Double d) {
+            writeByte(VALUE_DOUBLE);
+            ensure(8);
+            out.putDouble(d.value());
+        } else if (value instanceof Log.Entry.Value.UUID uuid) {
+            writeByte(VALUE_UUID);
+            ensure(16);
+            out.putLong(uuid.value().getMostSignificantBits());
+            out.putLong(uuid.value().getLeastSignificantBits());
+        } else if (value instanceof Log.Entry.Value.URI uri) {
+            writeByte(VALUE_URI);
+            writeString(uri.value().toString());
+        } else if (value instanceof Log.Entry.Value.Instant instant) {
+            writeByte(VALUE_INSTANT);
+            writeInstant(instant.value());
+        } else if (value instanceof Log.Entry.Value.LocalDateTime localDateTime) {
+            writeByte(VALUE_LOCAL_DATE_TIME);
+            writeZigzag(localDateTime.value().toLocalDate().toEpochDay());
+            writeVarint(localDateTime.value().toLocalTime().toNanoOfDay());
+        } else if (value instanceof Log.Entry.Value.LocalDate localDate) {
+            writeByte(VALUE_LOCAL_DATE);
+            writeZigzag(localDate.value().toEpochDay());
+        } else if (value instanceof Log.Entry.Value.LocalTime localTime) {
+            writeByte(VALUE_LOCAL_TIME);
+            writeVarint(localTime.value().toNanoOfDay());
+        } else if (value instanceof Log.Entry.Value.Duration duration) {
+            writeByte(VALUE_DURATION);
+            writeDuration(duration.value());
+        } else if (value instanceof Log.Entry.Value.Throwable throwable) {
+            writeByte(VALUE_THROWABLE);
+            writeThrowable(throwable.value(), 0);
+        } else if (value instanceof Log.Entry.Value.List list) {
+            writeByte(VALUE_LIST);
+            writeVarint(list.value().size());
+            for (var v : list.value()) {
+                writeValue(v);
+            }
+        } else if (value instanceof Log.Entry.Value.Map map) {
+            writeByte(VALUE_MAP);
+            writeVarint(map.value().size());
+            for (var entry : map.value().entrySet()) {
+                writeString(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        } else if (value instanceof Log.Entry.Value.Set set) {
+            writeByte(VALUE_SET);
+            writeVarint(set.value().size());
+            for (var v : set.value()) {
+                writeValue(v);
+            }
+        } else {
+            writeByte(VALUE_NULL);
+        }
+    }
+
+    private void writeThrowable(Throwable throwable, int depth) {
+        writeString(throwable.getClass().getName());
+        writeNullableString(throwable.getMessage());
+
+        var stackTrace = throwable.getStackTrace();
+        writeVarint(stackTrace.length);
+        for (var frame : stackTrace) {
+            writeString(frame.getClassName());
+            writeString(frame.getMethodName());
+            writeNullableString(frame.getFileName());
+            writeZigzag(frame.getLineNumber());
+        }
+
+        var cause = throwable.getCause();
+        if (cause != null && cause != throwable && depth < MAX_THROWABLE_DEPTH) {
+            writeByte((byte) 1);
+            writeThrowable(cause, depth + 1);
+        } else {
+            writeByte((byte) 0);
+        }
+
+        var suppressed = depth < MAX_THROWABLE_DEPTH ? throwable.getSuppressed() : new Throwable[0];
+        writeVarint(suppressed.length);
+        for (var s : suppressed) {
+            writeThrowable(s, depth + 1);
+        }
+    }
+
+    private void writeFlake(Flake flake) {
+        ensure(24);
+        out.putLong(flake.timePart());
+        out.putLong(flake.rand1Part());
+        out.putLong(flake.rand2Part());
+    }
+
+    private void writeThread(Log.ThreadInfo thread) {
+        writeZigzag(thread.id());
+        writeString(thread.name());
+        writeByte((byte) (thread.virtual() ? 1 : 0));
+    }
+
+    private void writeInstant(Instant instant) {
+        writeZigzag(instant.getEpochSecond());
+        writeVarint(instant.getNano());
+    }
+
+    private void writeDuration(Duration duration) {
+        writeZigzag(duration.getSeconds());
+        writeVarint(duration.getNano());
+    }
+
+    /**
+     * Writes a count of nanoseconds the same way as an instant or duration, without creating either.
+     */
+    private void writeNanos(long nanos) {
+        writeZigzag(Math.floorDiv(nanos, 1_000_000_000L));
+        writeVarint(Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    private void writeNullableString(String s) {
+        if (s == null) {
+            writeVarint(0);
+        } else {
+            writeString(s, 1);
+        }
+    }
+
+    private void writeString(String s) {
+        writeString(s, 0);
+    }
+
+    private void writeString(String s, int lengthBias) {
+        var length = s.length();
+        var utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            var c = s.charAt(i);
+            if (c < 0x80) {
+                utf8Length += 1;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+
+        writeVarint(utf8Length + lengthBias);
+        ensure(utf8Length);
+        for (int i = 0; i < length; i++) {
+            var c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                // Lone surrogates aren't valid UTF-8 and will read back as a replacement character
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void writeZigzag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) {
+        // Seven bits per byte, and at least one byte for zero.
+        ensure((63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1);
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private void writeByte(byte b) {
+        ensure(1);
+        out.put(b);
+    }
+
+    private void ensure(int bytes) {
+        if (out.remaining() >= bytes) {
+            return;
+        }
+
+        if (out != buffer) {
+            throw new BufferOverflowException();
+        }
+
+        var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+        out = grown;
+    }
+}
@@ -0,0 +1,80 @@
+package dev.mccue.log.alpha;
+
+/**
+ * Constants for the binary format written by {@link BinaryLogEncoder} and read by {@link BinaryLogDecoder}.
+ *
+ * <p>Every record is framed by a 4 byte big endian length followed by that many bytes of body.
+ * Integers in the body are unsigned LEB128 varints, zigzag encoded when they can be negative.
+ * Strings are a varint byte length followed by UTF-8. Nullable strings store their length plus one,
+ * with zero meaning null.</p>
+ *
+ * <pre>
+ * body       := kind level string(namespace) string(name) flake thread occurrence outcome? entries context
+ * kind       := EVENT | SPAN
+ * flake      := int64 int64 int64
+ * thread     := zigzag(id) string(name) bool(virtual)
+ * occurrence := instant                 for events
+ *             | instant duration        for spans
+ * outcome    := OK | ERROR throwable    for spans only
+ * entries    := varint(count) (string(key) value)*
+ * context    := (PLAIN entries | SPAN_CONTEXT flake instant thread)* GLOBAL entries
+ * instant    := zigzag(epochSecond) varint(nano)
+ * duration   := zigzag(seconds) varint(nano)
+ * throwable  := string(class) nullable(message) varint(count) frame* cause varint(count) throwable*
+ * frame      := string(class) string(method) nullable(file) zigzag(line)
+ * cause      := 0 | 1 throwable
+ * </pre>
+ *
+ * <p>Each value starts with one of the VALUE_ tags, followed by its contents.
+ * Lazy values are realized and written as whatever they realized to.</p>
+ */
+final class BinaryLogFormat {
+    private BinaryLogFormat() {
+    }
+
+    static final int HEADER_SIZE = 4;
+
+    static final byte EVENT = 1;
+    static final byte SPAN = 2;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final byte CONTEXT_PLAIN = 1;
+    static final byte CONTEXT_SPAN = 2;
+    static final byte CONTEXT_GLOBAL = 3;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_TRUE = 2;
+    static final byte VALUE_FALSE = 3;
+    static final byte VALUE_BYTE = 4;
+    static final byte VALUE_CHARACTER = 5;
+    static final byte VALUE_SHORT = 6;
+    static final byte VALUE_INTEGER = 7;
+    static final byte VALUE_LONG = 8;
+    static final byte VALUE_FLOAT = 9;
+    static final byte VALUE_DOUBLE = 10;
+    static final byte VALUE_UUID = 11;
+    static final byte VALUE_URI = 12;
+    static final byte VALUE_INSTANT = 13;
+    static final byte VALUE_LOCAL_DATE_TIME = 14;
+    static final byte VALUE_LOCAL_DATE = 15;
+    static final byte VALUE_LOCAL_TIME = 16;
+    static final byte VALUE_DURATION = 17;
+    static final byte VALUE_THROWABLE = 18;
+    static final byte VALUE_LIST = 19;
+    static final byte VALUE_MAP = 20;
+    static final byte VALUE_SET = 21;
+
+    /**
+     * Throwables can have cycles in their causes, so stop writing them after a point.
+     */
+    static final int MAX_THROWABLE_DEPTH = 64;
+
+    /**
+     * Values nested deeper than this are rejected when decoding, so malformed input fails with an
+     * exception rather than by running out of stack.
+     */
+    static final int MAX_VALUE_DEPTH = 256;
+}
@@ -0,0 +1,184 @@
+package dev.mccue.log.alpha;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Where the context for the currently executing code is kept.
+ *
+ * <p>When the running JVM has a final {@code java.lang.ScopedValue}, from Java 25 on, the context is
+ * kept in one. Scoped values are inherited by the forks of a {@code StructuredTaskScope}. Otherwise,
+ * a {@link ThreadLocal} is used. Before Java 25 ScopedValue is a preview API, so it is never used
+ * unless asked for.</p>
+ *
+ * <p>The choice can be forced by setting the {@code dev.mccue.log.alpha.contextStorage} system property
+ * to either {@code scoped} or {@code thread-local}. Which one is used is reported to {@link System#err},
+ * along with why if it is not the one asked for.</p>
+ */
+sealed interface ContextStorage {
+    String PROPERTY = "dev.mccue.log.alpha.contextStorage";
+
+    /**
+     * The first release where ScopedValue is no longer a preview API.
+     */
+    int SCOPED_VALUE_FINAL = 25;
+
+    /**
+     * @return The current local context, or null if there is none.
+     */
+    Log.Context.Child get();
+
+    /**
+     * Runs the code with the given context as the current local context.
+     */
+    <T> T with(Log.Context.Child context, Supplier<T> code);
+
+    static ContextStorage select() {
+        var requested = System.getProperty(PROPERTY);
+        if (requested != null && !"scoped".equals(requested) && !"thread-local".equals(requested)) {
+            System.err.printf("Unknown value for %s: %s. Falling back to default.%n", PROPERTY, requested);
+            requested = null;
+        }
+
+        ContextStorage storage;
+        if ("thread-local".equals(requested)) {
+            storage = new Local();
+        } else if ("scoped".equals(requested) || Runtime.version().feature() >= SCOPED_VALUE_FINAL) {
+            storage = scopedOrLocal();
+        } else {
+            storage = new Local();
+        }
+        System.err.printf("Keeping log context in %s.%n", storage);
+        return storage;
+    }
+
+    private static ContextStorage scopedOrLocal() {
+        try {
+            return Scoped.INSTANCE;
+        } catch (LinkageError e) {
+            System.err.printf("ScopedValue is not available (%s). Falling back to thread local context.%n", e);
+            return new Local();
+        }
+    }
+
+    final class Local implements ContextStorage {
+        private final ThreadLocal<Log.Context.Child> context = new ThreadLocal<>();
+
+        @Override
+        public Log.Context.Child get() {
+            return context.get();
+        }
+
+        @Override
+        public <T> T with(Log.Context.Child context, Supplier<T> code) {
+            var previous = this.context.get();
+            try {
+                this.context.set(context);
+                return code.get();
+            } finally {
+                this.context.set(previous);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ContextStorage.Local";
+        }
+    }
+
+    /*
+     * The library targets Java 17, so ScopedValue can't be referred to directly. Everything is
+     * looked up once and kept in static finals so the JIT can treat the handles as constants.
+     */
+    final class Scoped implements ContextStorage {
+        private static final Object SCOPED_VALUE;
+        private static final MethodHandle IS_BOUND;
+        private static final MethodHandle GET;
+        private static final MethodHandle WHERE;
+        private static final MethodHandle RUN;
+
+        static final Scoped INSTANCE;
+
+        static {
+            try {
+                var lookup = MethodHandles.publicLookup();
+                var scopedValueClass = Class.forName("java.lang.ScopedValue");
+                var carrierClass = Class.forName("java.lang.ScopedValue$Carrier");
+
+                SCOPED_VALUE = lookup.findStatic(
+                        scopedValueClass,
+                        "newInstance",
+                        MethodType.methodType(scopedValueClass)
+                ).invoke();
+                IS_BOUND = lookup.findVirtual(scopedValueClass, "isBound", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class));
+                GET = lookup.findVirtual(scopedValueClass, "get", MethodType.methodType(Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                WHERE = lookup.findStatic(
+                                scopedValueClass,
+                                "where",
+                                MethodType.methodType(carrierClass, scopedValueClass, Object.class)
+                        )
+                        .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+                RUN = lookup.findVirtual(carrierClass, "run", MethodType.methodType(void.class, Runnable.class))
+                        .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+
+                INSTANCE = new Scoped();
+
+                // Preview APIs can be present but unusable, so make sure it actually works.
+                var probe = new Log.Context.Child.Plain(List.of(), new Log.Context.Global(List.of()));
+                if (INSTANCE.with(probe, INSTANCE::get) != probe || INSTANCE.get() != null) {
+                    throw new IllegalStateException("ScopedValue did not behave as expected");
+                }
+            } catch (Throwable t) {
+                throw new ExceptionInInitializerError(t);
+            }
+        }
+
+        private Scoped() {
+        }
+
+        @Override
+        public Log.Context.Child get() {
+            try {
+                if ((boolean) IS_BOUND.invokeExact(SCOPED_VALUE)) {
+                    return (Log.Context.Child) (Object) GET.invokeExact(SCOPED_VALUE);
+                } else {
+                    return null;
+                }
+            } catch (Throwable t) {
+                throw sneakyThrow(t);
+            }
+        }
+
+        @Override
+        public <T> T with(Log.Context.Child context, Supplier<T> code) {
+            var result = new Object() {
+                T value;
+            };
+            try {
+                var carrier = (Object) WHERE.invokeExact(SCOPED_VALUE, (Object) context);
+                RUN.invokeExact(carrier, (Runnable) () -> result.value = code.get());
+            } catch (Throwable t) {
+                throw sneakyThrow(t);
+            }
+            return result.value;
+        }
+
+        /**
+         * Rethrows checked exceptions from the code as is, the same as {@link Local} lets them through.
+         */
+        @SuppressWarnings("unchecked")
+        private static <E extends Throwable> RuntimeException sneakyThrow(Throwable t) throws E {
+            throw (E) t;
+        }
+
+        @Override
+        public String toString() {
+            return "ContextStorage.Scoped";
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package dev.mccue.log.alpha;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A logger which collapses repeats of the same event into a single summary.
+ *
+ * <p>Two events are the same if they have the same level, category and entries. The first is
+ * passed along to the wrapped logger as is. Any repeats seen while the event keeps recurring
+ * within the window are only counted, and once per window a summary is passed along in their place.
+ * The summary has the level, category and entries of the original along with</p>
+ *
+ * <ul>
+ *     <li>{@code repeated} - how many repeats it stands in for.</li>
+ *     <li>{@code repeated-first-at} - when the first of those repeats happened.</li>
+ *     <li>{@code repeated-last-at} - when the last of those repeats happened.</li>
+ * </ul>
+ *
+ * <p>Once an event has not been seen for a whole window, the next one is passed along again.</p>
+ *
+ * <p>The context an event was logged in is deliberately not part of what makes it the same, so the
+ * same event logged while handling different requests, or inside different spans, is collapsed into
+ * one summary. The summary carries the context and thread of the event which was last passed along,
+ * and says nothing about the contexts of the repeats it stands in for.</p>
+ *
+ * <p>Entries are compared by value without being rendered. Throwables are compared by class and
+ * message, since no two are ever equal otherwise, wherever they appear in lists, maps and sets.
+ * Lazy values are never realized, so events with them are only the same if they share the same
+ * lazy value. Spans are never deduplicated.</p>
+ *
+ * {@snippet :
+ * var logger = new DeduplicatingLogger(LoggerFactory.getLogger(), Duration.ofSeconds(10));
+ * }
+ */
+public final class DeduplicatingLogger implements Logger, AutoCloseable {
+    private static final int DEFAULT_MAX_TRACKED = 10_000;
+
+    private final Logger logger;
+    private final long window;
+    private final int maxTracked;
+    private final ConcurrentHashMap<Key, Repeats> seen;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a deduplicating logger which tracks up to 10,000 distinct events at a time.
+     *
+     * @param logger The logger to pass logs along to.
+     * @param window How long to keep collapsing an event after it was last seen. Also how often summaries are emitted.
+     */
+    public DeduplicatingLogger(Logger logger, Duration window) {
+        this(logger, window, DEFAULT_MAX_TRACKED);
+    }
+
+    /**
+     * @param logger     The logger to pass logs along to.
+     * @param window     How long to keep collapsing an event after it was last seen. Also how often summaries are emitted.
+     * @param maxTracked The most distinct events to track at once. Events beyond that are passed along untouched.
+     */
+    public DeduplicatingLogger(Logger logger, Duration window, int maxTracked) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        Objects.requireNonNull(window, "window must not be null");
+        if (window.toMillis() <= 0) {
+            throw new IllegalArgumentException("window must be at least a millisecond");
+        }
+        if (maxTracked <= 0) {
+            throw new IllegalArgumentException("maxTracked must be positive");
+        }
+
+        this.window = window.toNanos();
+        this.maxTracked = maxTracked;
+        this.seen = new ConcurrentHashMap<>();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "dev.mccue.log.alpha.DeduplicatingLogger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var windowMillis = window.toMillis();
+        this.sweeper.scheduleAtFixedRate(this::sweep, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        return logger.isEnabled(level, category);
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, List<Log.Entry> entries) {
+        if (logger.isEnabled(level, category)) {
+            var copied = Entries.copyOf(entries);
+            if (isFirst(new Key(level, category, copied), null)) {
+                logger.log(new Log.Event(level, category, copied));
+            }
+        }
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, Log.Entry... entries) {
+        if (logger.isEnabled(level, category)) {
+            var copied = Entries.copyOf(entries);
+            if (isFirst(new Key(level, category, copied), null)) {
+                logger.log(new Log.Event(level, category, copied));
+            }
+        }
+    }
+
+    @Override
+    public void log(Log log) {
+        if (!(log instanceof Log.Event event) || isFirst(new Key(event.level(), event.category(), event.entries()), event)) {
+            logger.log(log);
+        }
+    }
+
+    /**
+     * Records a sighting of the event and reports whether it should be passed along.
+     *
+     * @param event The event, or null if it will be made on this thread in the current context.
+     */
+    private boolean isFirst(Key key, Log.Event event) {
+        var now = System.nanoTime();
+        while (true) {
+            var repeats = seen.get(key);
+            if (repeats == null) {
+                if (seen.size() >= maxTracked || seen.putIfAbsent(key, new Repeats(now, origin(event))) == null) {
+                    return true;
+                }
+                continue;
+            }
+
+            var lastSeen = repeats.lastSeen.get();
+            if (now - lastSeen <= window) {
+                if (repeats.repeat(now)) {
+                    return false;
+                }
+            } else if (!repeats.isRetired()) {
+                // Only one thread can move an entry into a new window, so only one passes the event along.
+                // Anything from before which has not been reported yet still is.
+                if (repeats.lastSeen.compareAndSet(lastSeen, now)) {
+                    repeats.origin = origin(event);
+                    return true;
+                }
+                continue;
+            }
+            // Retired by a sweep, which removes it next. Don't wait for that.
+            seen.remove(key, repeats);
+        }
+    }
+
+    private static Origin origin(Log.Event event) {
+        return event == null
+                ? new Origin(Log.Context.current(), Log.ThreadInfo.current())
+                : new Origin(event.context(), event.thread());
+    }
+
+    private void sweep() {
+        try {
+            var now = System.nanoTime();
+            var summaries = new ArrayList<Log.Event>();
+            for (var entry : seen.entrySet()) {
+                var key = entry.getKey();
+                var repeats = entry.getValue();
+                Log.Event summary;
+                // Give a margin of a whole window before forgetting an event which has stopped recurring.
+                if (now - repeats.lastSeen.get() > 2 * window) {
+                    summary = repeats.retire(key);
+                    seen.remove(key, repeats);
+                } else {
+                    summary = repeats.summarize(key);
+                }
+                if (summary != null) {
+                    summaries.add(summary);
+                }
+            }
+            summaries.forEach(logger::log);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to summarize repeated logs");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops summarizing and passes along summaries for any repeats not yet reported.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (var entry : seen.entrySet()) {
+            var summary = entry.getValue().retire(entry.getKey());
+            seen.remove(entry.getKey(), entry.getValue());
+            if (summary != null) {
+                logger.log(summary);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeduplicatingLogger[logger=" + logger + ", window=" + Duration.ofNanos(window) + "]";
+    }
+
+    /**
+     * Where the event which was passed along was logged, so its summaries can be attributed the same way.
+     */
+    private record Origin(Log.Context context, Log.ThreadInfo thread) {
+    }
+
+    private static final class Repeats {
+        private static final long RETIRED = -1;
+
+        final AtomicLong lastSeen;
+        volatile Origin origin;
+        // Repeats not yet reported, or RETIRED once the entry is being removed. Retiring takes the final
+        // count in the same step, so no repeat can be counted after the last summary is made.
+        private final AtomicLong count = new AtomicLong();
+        // Milliseconds since the epoch, or 0 when there are no unreported repeats.
+        private final AtomicLong firstAt = new AtomicLong();
+        private volatile long lastAt;
+
+        Repeats(long now, Origin origin) {
+            this.lastSeen = new AtomicLong(now);
+            this.origin = origin;
+        }
+
+        /**
+         * @return Whether the repeat was counted, which it isn't once the entry is retired.
+         */
+        boolean repeat(long now) {
+            var millis = System.currentTimeMillis();
+            lastAt = millis;
+            if (firstAt.get() == 0) {
+                firstAt.compareAndSet(0, millis);
+            }
+            while (true) {
+                var count = this.count.get();
+                if (count == RETIRED) {
+                    return false;
+                }
+                if (this.count.compareAndSet(count, count + 1)) {
+                    lastSeen.set(now);
+                    return true;
+                }
+            }
+        }
+
+        boolean isRetired() {
+            return count.get() == RETIRED;
+        }
+
+        Log.Event summarize(Key key) {
+            while (true) {
+                var count = this.count.get();
+                if (count <= 0) {
+                    return null;
+                }
+                if (this.count.compareAndSet(count, 0)) {
+                    return summary(key, count);
+                }
+            }
+        }
+
+        /**
+         * Stops counting repeats and summarizes any not yet reported.
+         */
+        Log.Event retire(Key key) {
+            var count = this.count.getAndSet(RETIRED);
+            return count > 0 ? summary(key, count) : null;
+        }
+
+        private Log.Event summary(Key key, long repeated) {
+            var first = firstAt.getAndSet(0);
+            var last = lastAt;
+
+            var entries = new ArrayList<Log.Entry>(key.entries.size() + 3);
+            entries.addAll(key.entries);
+            entries.add(Log.Entry.of("repeated", repeated));
+            entries.add(Log.Entry.of("repeated-first-at", Instant.ofEpochMilli(first == 0 ? last : first)));
+            entries.add(Log.Entry.of("repeated-last-at", Instant.ofEpochMilli(last)));
+            var origin = this.origin;
+            return new Log.Event(
+                    origin.context(),
+                    origin.thread(),
+                    Flake.create(),
+                    new Log.Occurrence.PointInTime(Instant.now()),
+                    key.level,
+                    key.category,
+                    entries
+            );
+        }
+    }
+
+    /**
+     * Identifies an event by its level, category and entries, with a hash computed once up front.
+     */
+    private static final class Key {
+        final Log.Level level;
+        final Log.Category category;
+        final List<Log.Entry> entries;
+        private final int hash;
+
+        Key(Log.Level level, Log.Category category, List<Log.Entry> entries) {
+            this.level = level;
+            this.category = category;
+            this.entries = entries;
+
+            var hash = level.hashCode() * 31 + category.hashCode();
+            for (var entry : entries) {
+                hash = hash * 31 + entry.key().hashCode();
+                hash = hash * 31 + hash(entry.value());
+            }
+            this.hash = hash;
+        }
+
+        private static int hash(Log.Entry.Value value) {
+            if (value instanceof Log.Entry.Value.Throwable throwable) {
+                return throwable.value().getClass().hashCode() * 31
+                       + Objects.hashCode(throwable.value().getMessage());
+            } else if (value instanceof Log.Entry.Value.List list) {
+                var hash = 1;
+                for (var element : list.value()) {
+                    hash = hash * 31 + hash(element);
+                }
+                return hash;
+            } else if (value instanceof Log.Entry.Value.Map map) {
+                var hash = 0;
+                for (var entry : map.value().entrySet()) {
+                    hash += entry.getKey().hashCode() ^ hash(entry.getValue());
+                }
+                return hash;
+            } else if (value instanceof Log.Entry.Value.Set set) {
+                var hash = 0;
+                for (var element : set.value()) {
+                    hash += hash(element);
+                }
+                return hash;
+            } else {
+                return value.hashCode();
+            }
+        }
+
+        private static boolean same(Log.Entry.Value a, Log.Entry.Value b) {
+            if (a instanceof Log.Entry.Value.Throwable x && b instanceof Log.Entry.Value.Throwable y) {
+                return x.value().getClass() == y.value().getClass()
+                       && Objects.equals(x.value().getMessage(), y.value().getMessage());
+            } else if (a instanceof Log.Entry.Value.List x && b instanceof Log.Entry.Value.List y) {
+                var xs = x.value();
+                var ys = y.value();
+                if (xs.size() != ys.size()) {
+                    return false;
+                }
+                for (int i = 0; i < xs.size(); i++) {
+                    if (!same(xs.get(i), ys.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (a instanceof Log.Entry.Value.Map x && b instanceof Log.Entry.Value.Map y) {
+                Map<String, Log.Entry.Value> xs = x.value();
+                Map<String, Log.Entry.Value> ys = y.value();
+                if (xs.size() != ys.size()) {
+                    return false;
+                }
+                for (var entry : xs.entrySet()) {
+                    var other = ys.get(entry.getKey());
+                    if (other == null || !same(entry.getValue(), other)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (a instanceof Log.Entry.Value.Set x && b instanceof Log.Entry.Value.Set y) {
+                var xs = x.value();
+                var ys = y.value();
+                if (xs.size() != ys.size()) {
+                    return false;
+                }
+                if (xs.equals(ys)) {
+                    return true;
+                }
+                // Elements only the same by this comparison, like throwables, have to be matched up one by one.
+                for (var element : xs) {
+                    if (!ys.contains(element) && !containsSame(ys, element)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else {
+                return a.equals(b);
+            }
+        }
+
+        private static boolean containsSame(Set<Log.Entry.Value> values, Log.Entry.Value value) {
+            for (var other : values) {
+                if (same(value, other)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)
+                || hash != other.hash
+                || level != other.level
+                || !category.equals(other.category)
+                || entries.size() != other.entries.size()) {
+                return false;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                var x = entries.get(i);
+                var y = other.entries.get(i);
+                if (!x.key().equals(y.key()) || !same(x.value(), y.value())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * A logger which drops logs below a minimum level for their namespace, with levels that can be
+ * changed while running.
+ *
+ * <p>Levels are set per namespace prefix. The most specific matching prefix wins, where a prefix
+ * matches a namespace equal to it or starting with it followed by a {@code .}. Given a file like</p>
+ *
+ * {@snippet lang=properties :
+ * com.acme = WARN
+ * com.acme.db = DEBUG
+ * com.acme.noisy = OFF
+ * }
+ *
+ * <p>logs in {@code com.acme.db.pool} are let through at {@code DEBUG} and above, logs in
+ * {@code com.acme.web} at {@code WARN} and above, and nothing in {@code com.acme.noisy}. The key
+ * {@code *} sets the level for namespaces no prefix matches, which otherwise are let through at
+ * every level.</p>
+ *
+ * {@snippet :
+ * var logger = new DynamicLevelLogger(LoggerFactory.getLogger(), Path.of("log-levels.properties"));
+ * }
+ *
+ * <p>The file is watched and reloaded whenever it changes. If it can't be read or parsed, the
+ * problem is reported to {@link System#err} and the previous levels stay in effect. Levels can
+ * also be replaced directly with {@link #setLevels(Map)}.</p>
+ *
+ * <p>The levels are compiled into an immutable lookup which is swapped in whole, and the answer for
+ * each interned category, like those from {@link Logger.Namespaced#category(String)}, is cached by
+ * its {@link Log.Category#id()}. Checking whether a log is enabled takes no locks, and for interned
+ * categories does not allocate. Other categories are looked up each time and never interned.</p>
+ */
+public final class DynamicLevelLogger implements Logger, AutoCloseable {
+    private final Logger logger;
+    private final Path path;
+    private final WatchService watcher;
+    private volatile LevelThresholds thresholds;
+
+    /**
+     * Creates a logger with fixed starting levels and no file to watch.
+     *
+     * @param logger The logger to pass logs along to.
+     * @param levels The minimum level for each namespace prefix. The empty namespace sets the default.
+     */
+    public DynamicLevelLogger(Logger logger, Map<String, Log.Level> levels) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        this.path = null;
+        this.watcher = null;
+        this.thresholds = LevelThresholds.of(Objects.requireNonNull(levels, "levels must not be null"));
+    }
+
+    /**
+     * @param logger The logger to pass logs along to.
+     * @param path   A properties file with namespaces as keys and level names, or {@code OFF}, as values.
+     * @throws UncheckedIOException     If the file cannot be read or watched.
+     * @throws IllegalArgumentException If the file has a value which is not a level.
+     */
+    public DynamicLevelLogger(Logger logger, Path path) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        // Absolute, so even a bare file name has a directory to watch.
+        this.path = Objects.requireNonNull(path, "path must not be null").toAbsolutePath();
+        WatchService watcher = null;
+        try {
+            this.thresholds = read(this.path);
+            watcher = this.path.getFileSystem().newWatchService();
+            // Editors often save by replacing the file, so watch the directory for any change to it.
+            this.path.getParent().register(
+                    watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+        } catch (IOException e) {
+            closeQuietly(watcher, e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(watcher, e);
+            throw e;
+        }
+        this.watcher = watcher;
+
+        var thread = new Thread(this::watch, "dev.mccue.log.alpha.DynamicLevelLogger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(WatchService watcher, Exception failure) {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private static LevelThresholds read(Path path) throws IOException {
+        var properties = new Properties();
+        try (var reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return LevelThresholds.parse(properties);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = watcher.take();
+                var changed = false;
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || path.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed.
+        }
+    }
+
+    /**
+     * Reads the watched file again. Called automatically when the file changes.
+     */
+    public void reload() {
+        if (path == null) {
+            return;
+        }
+        try {
+            thresholds = read(path);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to reload log levels from " + path + ". Keeping the previous levels.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the levels until the watched file next changes, if there is one.
+     *
+     * @param levels The minimum level for each namespace prefix. The empty namespace sets the default.
+     */
+    public void setLevels(Map<String, Log.Level> levels) {
+        thresholds = LevelThresholds.of(Objects.requireNonNull(levels, "levels must not be null"));
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        return thresholds.isEnabled(level, category) && logger.isEnabled(level, category);
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, List<Log.Entry> entries) {
+        if (thresholds.isEnabled(level, category)) {
+            logger.event(level, category, entries);
+        }
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, Log.Entry... entries) {
+        if (thresholds.isEnabled(level, category)) {
+            logger.event(level, category, entries);
+        }
+    }
+
+    @Override
+    public <T> T span(Log.Level level, Log.Category category, List<Log.Entry> entries, Supplier<T> code) {
+        if (thresholds.isEnabled(level, category)) {
+            return logger.span(level, category, entries, code);
+        } else {
+            return code.get();
+        }
+    }
+
+    /**
+     * Passes along logs which were constructed elsewhere, subject to the same levels.
+     */
+    @Override
+    public void log(Log log) {
+        if (thresholds.isEnabled(log.level(), log.category())) {
+            logger.log(log);
+        }
+    }
+
+    /**
+     * Stops watching the file. The current levels stay in effect.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Failed to stop watching " + path);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DynamicLevelLogger[logger=" + logger + ", path=" + path + ", levels=" + thresholds + "]";
+    }
+}
@@ -0,0 +1,38 @@
+package dev.mccue.log.alpha;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/*
+ * A few encoders shared by every thread which logs to a file.
+ *
+ * An encoder per thread would mean a fresh encoder, with a cold key cache and a thread local map
+ * to hold it, for every short-lived virtual thread. Encoding never blocks, so only about as many
+ * encoders as there are processors are ever in use at once. Any extra made during a burst are
+ * simply not kept.
+ */
+final class EncoderPool {
+    private final Supplier<? extends LogEncoder> factory;
+    private final ArrayBlockingQueue<LogEncoder> idle;
+
+    EncoderPool(Supplier<? extends LogEncoder> factory) {
+        this.factory = Objects.requireNonNull(factory, "factory must not be null");
+        this.idle = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @return An encoder for the caller to use alone until it is released.
+     */
+    LogEncoder acquire() {
+        var encoder = idle.poll();
+        return encoder == null ? factory.get() : encoder;
+    }
+
+    /**
+     * Gives the encoder back. Anything it encoded must no longer be in use.
+     */
+    void release(LogEncoder encoder) {
+        idle.offer(encoder);
+    }
+}
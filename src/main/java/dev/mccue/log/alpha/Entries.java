@@ -0,0 +1,94 @@
+package dev.mccue.log.alpha;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * An immutable list of entries backed by an array nobody else can see.
+ *
+ * <p>Every constructor which takes entries runs them through {@link Entries#copyOf(List)}. Since that
+ * hands back an {@link Entries} as-is, the entries of a log are copied exactly once on their way from
+ * the varargs methods on {@link Logger} to a {@link Log.Event}, no matter how many layers they pass through.</p>
+ */
+final class Entries extends AbstractList<Log.Entry> implements RandomAccess {
+    private static final Entries EMPTY = new Entries(new Log.Entry[0]);
+
+    private final Log.Entry[] entries;
+
+    private Entries(Log.Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Copies the given entries.
+     *
+     * @param entries The entries to copy. Must not contain null.
+     * @return An immutable list of the entries.
+     */
+    static List<Log.Entry> copyOf(Log.Entry[] entries) {
+        if (entries.length == 0) {
+            return EMPTY;
+        }
+
+        var copy = entries.clone();
+        for (var entry : copy) {
+            Objects.requireNonNull(entry, "entries must not contain null");
+        }
+        return new Entries(copy);
+    }
+
+    /**
+     * Wraps the given entries without copying them.
+     *
+     * @param entries The entries to wrap. Must not contain null, and must not be changed afterwards.
+     * @return An immutable list of the entries.
+     */
+    static List<Log.Entry> wrap(Log.Entry[] entries) {
+        return entries.length == 0 ? EMPTY : new Entries(entries);
+    }
+
+    /**
+     * Copies the given entries, unless they are already {@link Entries}.
+     *
+     * @param entries The entries to copy. Must not contain null.
+     * @return An immutable list of the entries.
+     */
+    static List<Log.Entry> copyOf(List<Log.Entry> entries) {
+        if (entries instanceof Entries) {
+            return entries;
+        } else if (entries.isEmpty()) {
+            return EMPTY;
+        }
+
+        var copy = entries.toArray(new Log.Entry[0]);
+        for (var entry : copy) {
+            Objects.requireNonNull(entry, "entries must not contain null");
+        }
+        return new Entries(copy);
+    }
+
+    @Override
+    public Log.Entry get(int index) {
+        return entries[index];
+    }
+
+    @Override
+    public int size() {
+        return entries.length;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Log.Entry> action) {
+        for (var entry : entries) {
+            action.accept(entry);
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        return entries.clone();
+    }
+}
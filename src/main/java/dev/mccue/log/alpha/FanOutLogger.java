@@ -0,0 +1,129 @@
+package dev.mccue.log.alpha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A logger which passes every log along to several loggers, each on its own thread.
+ *
+ * <p>Every sink gets its own {@link AsyncLogger}, with its own buffer, consumer thread and
+ * {@link AsyncLogger.OverflowPolicy}. The thread doing logging only places the same log into
+ * each buffer, so a slow sink delays the others only if its policy is to block.</p>
+ *
+ * {@snippet :
+ * var logger = new FanOutLogger(List.of(
+ *         new FanOutLogger.Sink(fileLogger),
+ *         new FanOutLogger.Sink(shipper, 65536, AsyncLogger.OverflowPolicy.DropNewest.INSTANCE),
+ *         new FanOutLogger.Sink(debugBuffer, 1024, AsyncLogger.OverflowPolicy.DropNewest.INSTANCE)
+ * ));
+ * Runtime.getRuntime().addShutdownHook(new Thread(logger::close));
+ * }
+ *
+ * <p>A log is only queued for the sinks which are enabled for its level and category.</p>
+ */
+public final class FanOutLogger implements Logger, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private final List<Sink> sinks;
+    private final AsyncLogger[] loggers;
+
+    /**
+     * A logger to pass logs along to and how to buffer logs for it.
+     *
+     * @param logger         The logger. {@link Logger#isEnabled} is called from the threads doing logging.
+     *                       Logs are handed to it one thread at a time.
+     * @param capacity       The number of logs which can be waiting for this logger.
+     * @param overflowPolicy What to do with logs for this logger when its buffer is full.
+     */
+    public record Sink(Logger logger, int capacity, AsyncLogger.OverflowPolicy overflowPolicy) {
+        public Sink {
+            Objects.requireNonNull(logger, "logger must not be null");
+            Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+        }
+
+        /**
+         * A sink with a default capacity which blocks when full.
+         */
+        public Sink(Logger logger) {
+            this(logger, DEFAULT_CAPACITY, AsyncLogger.OverflowPolicy.Block.INSTANCE);
+        }
+    }
+
+    /**
+     * @param sinks The loggers to pass logs along to.
+     */
+    public FanOutLogger(List<Sink> sinks) {
+        this.sinks = List.copyOf(Objects.requireNonNull(sinks, "sinks must not be null"));
+        var loggers = new ArrayList<AsyncLogger>(this.sinks.size());
+        try {
+            for (var sink : this.sinks) {
+                loggers.add(new AsyncLogger(
+                        sink.logger(),
+                        sink.capacity(),
+                        AsyncLogger.WaitStrategy.PARK,
+                        sink.overflowPolicy()
+                ));
+            }
+        } catch (RuntimeException e) {
+            loggers.forEach(AsyncLogger::close);
+            throw e;
+        }
+        this.loggers = loggers.toArray(new AsyncLogger[0]);
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        for (var logger : loggers) {
+            if (logger.isEnabled(level, category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void log(Log log) {
+        Objects.requireNonNull(log, "log must not be null");
+        for (var logger : loggers) {
+            if (logger.isEnabled(log.level(), log.category())) {
+                logger.log(log);
+            }
+        }
+    }
+
+    /**
+     * @return How many logs have been dropped for each sink, in the order the sinks were given.
+     */
+    public List<Long> dropped() {
+        var dropped = new ArrayList<Long>(loggers.length);
+        for (var logger : loggers) {
+            dropped.add(logger.dropped());
+        }
+        return List.copyOf(dropped);
+    }
+
+    /**
+     * Waits until every log queued before this call has been handed off to every sink.
+     */
+    public void flush() {
+        for (var logger : loggers) {
+            logger.flush();
+        }
+    }
+
+    /**
+     * Stops accepting logs, hands off any logs already queued, and stops every consumer thread.
+     */
+    @Override
+    public void close() {
+        for (var logger : loggers) {
+            logger.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FanOutLogger[sinks=" + sinks + "]";
+    }
+}
@@ -0,0 +1,477 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A logger which appends encoded logs to a file, committing them in groups.
+ *
+ * <p>Logging threads encode their log and copy it into a shared batch. A single writer thread
+ * takes everything which has accumulated since its last write and hands it to the file in one
+ * gathering write. Whether that write is followed by an {@code fsync} is decided by the
+ * {@link Durability} policy.</p>
+ *
+ * <p>Code which needs to know a particular log has reached the disk can {@link #append(Log)} it
+ * and wait on the returned {@link Ticket}. The sync which completes the ticket is shared by every
+ * log in the same group, so many threads waiting on tickets at once cost only a few syncs.</p>
+ *
+ * {@snippet :
+ * var logger = new FileChannelLogger(Path.of("app.log"), new FileChannelLogger.Durability.OnError());
+ * try {
+ *     // ...
+ * } catch (Exception e) {
+ *     var category = new Log.Category("billing", "charge-failed");
+ *     logger.append(new Log.Event(Log.Level.ERROR, category, List.of(Log.Entry.of("exception", e)))).await();
+ * }
+ * }
+ */
+public final class FileChannelLogger implements Logger, AutoCloseable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long MAX_PENDING_BYTES = 16L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final EncoderPool encoders;
+
+    private final ReentrantLock lock;
+    private final Condition hasWork;
+    private final Condition hasRoom;
+    private final Condition durable;
+
+    // Everything below is guarded by the lock.
+    private final ArrayList<ByteBuffer> filling;
+    private final ArrayDeque<ByteBuffer> freeChunks;
+    private boolean fillingHasError;
+    private long pendingBytes;
+    private long appended;
+    private long synced;
+    private long syncRequested;
+    private IOException failure;
+    private boolean closed;
+
+    private final Thread writer;
+
+    /**
+     * When the file should be synced to disk.
+     *
+     * <p>Regardless of policy, the file is always synced when a {@link Ticket} is waiting
+     * and when the logger is closed.</p>
+     */
+    public sealed interface Durability {
+        /**
+         * Leave it to the operating system.
+         */
+        record Never() implements Durability {
+        }
+
+        /**
+         * Sync once the given amount of time has passed since the last sync.
+         */
+        record Interval(Duration interval) implements Durability {
+            public Interval {
+                Objects.requireNonNull(interval, "interval must not be null");
+                if (interval.isNegative() || interval.isZero()) {
+                    throw new IllegalArgumentException("interval must be positive");
+                }
+            }
+        }
+
+        /**
+         * Sync once at least the given number of bytes have been written since the last sync.
+         */
+        record Bytes(long bytes) implements Durability {
+            public Bytes {
+                if (bytes <= 0) {
+                    throw new IllegalArgumentException("bytes must be positive");
+                }
+            }
+        }
+
+        /**
+         * Sync any group which contains a log at {@link Log.Level#ERROR}.
+         */
+        record OnError() implements Durability {
+        }
+    }
+
+    /**
+     * A claim on a log passed to {@link #append(Log)}.
+     */
+    public static final class Ticket {
+        private final FileChannelLogger logger;
+        private final long sequence;
+
+        private Ticket(FileChannelLogger logger, long sequence) {
+            this.logger = logger;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return Whether the log has been written and synced to disk.
+         * @throws UncheckedIOException If the log could not be written.
+         */
+        public boolean isDurable() {
+            logger.lock.lock();
+            try {
+                return check();
+            } finally {
+                logger.lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until the log has been written and synced to disk.
+         *
+         * @throws InterruptedException If interrupted while waiting.
+         * @throws UncheckedIOException If the log could not be written.
+         */
+        public void await() throws InterruptedException {
+            logger.lock.lock();
+            try {
+                while (!check()) {
+                    logger.durable.await();
+                }
+            } finally {
+                logger.lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until the log has been written and synced to disk, or for the timeout to elapse.
+         *
+         * @param timeout How long to wait.
+         * @return Whether the log is durable.
+         * @throws InterruptedException If interrupted while waiting.
+         * @throws UncheckedIOException If the log could not be written.
+         */
+        public boolean await(Duration timeout) throws InterruptedException {
+            var remaining = Objects.requireNonNull(timeout, "timeout must not be null").toNanos();
+            logger.lock.lock();
+            try {
+                while (!check()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = logger.durable.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                logger.lock.unlock();
+            }
+        }
+
+        private boolean check() {
+            if (logger.synced >= sequence) {
+                return true;
+            }
+            if (logger.failure != null) {
+                throw new UncheckedIOException(logger.failure);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "Ticket[sequence=" + sequence + "]";
+        }
+    }
+
+    /**
+     * Creates a logger which appends JSON to the given file.
+     *
+     * @param path       The file to append to. Will be created if it does not exist.
+     * @param durability When to sync the file.
+     * @throws UncheckedIOException If the file cannot be opened.
+     */
+    public FileChannelLogger(Path path, Durability durability) {
+        this(path, durability, JsonLogEncoder::new);
+    }
+
+    /**
+     * @param path       The file to append to. Will be created if it does not exist.
+     * @param durability When to sync the file.
+     * @param encoder    Creates the encoders used for logs. A few are kept and shared between threads.
+     * @throws UncheckedIOException If the file cannot be opened.
+     */
+    public FileChannelLogger(Path path, Durability durability, Supplier<? extends LogEncoder> encoder) {
+        Objects.requireNonNull(path, "path must not be null");
+        this.durability = Objects.requireNonNull(durability, "durability must not be null");
+        this.encoders = new EncoderPool(Objects.requireNonNull(encoder, "encoder must not be null"));
+        try {
+            this.channel = FileChannel.open(
+                    path,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.lock = new ReentrantLock();
+        this.hasWork = lock.newCondition();
+        this.hasRoom = lock.newCondition();
+        this.durable = lock.newCondition();
+        this.filling = new ArrayList<>();
+        this.freeChunks = new ArrayDeque<>();
+
+        this.writer = new Thread(this::write, "dev.mccue.log.alpha.FileChannelLogger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the log to be written.
+     *
+     * <p>Logs which arrive after this logger is closed, or after writing to the file has
+     * failed, are dropped.</p>
+     *
+     * @param log The log to log.
+     */
+    @Override
+    public void log(Log log) {
+        enqueue(log, false);
+    }
+
+    /**
+     * Queues the log to be written and asks for it to be synced to disk as soon as possible.
+     *
+     * @param log The log to log.
+     * @return A ticket which can be waited on until the log is durable.
+     * @throws UncheckedIOException  If writing to the file has failed, with the reason it failed.
+     * @throws IllegalStateException If the logger is closed.
+     */
+    public Ticket append(Log log) {
+        var sequence = enqueue(log, true);
+        if (sequence < 0) {
+            lock.lock();
+            try {
+                if (failure != null) {
+                    throw new UncheckedIOException(failure);
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw new IllegalStateException("logger is closed");
+        }
+        return new Ticket(this, sequence);
+    }
+
+    private long enqueue(Log log, boolean sync) {
+        var encoder = encoders.acquire();
+        try {
+            return enqueue(log, encoder.encode(log), sync);
+        } finally {
+            encoders.release(encoder);
+        }
+    }
+
+    private long enqueue(Log log, ByteBuffer encoded, boolean sync) {
+        var length = encoded.remaining();
+
+        lock.lock();
+        try {
+            while (!closed && pendingBytes >= MAX_PENDING_BYTES) {
+                hasRoom.awaitUninterruptibly();
+            }
+            if (closed) {
+                return -1;
+            }
+
+            copy(encoded);
+            pendingBytes += length;
+            fillingHasError |= log.level() == Log.Level.ERROR;
+            var sequence = ++appended;
+            if (sync) {
+                syncRequested = sequence;
+            }
+            hasWork.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the bytes onto the end of the batch being filled. Must be called while holding the lock.
+     */
+    private void copy(ByteBuffer encoded) {
+        var chunk = filling.isEmpty() ? null : filling.get(filling.size() - 1);
+        while (encoded.hasRemaining()) {
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = freeChunks.poll();
+                if (chunk == null) {
+                    chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                }
+                filling.add(chunk);
+            }
+
+            var n = Math.min(chunk.remaining(), encoded.remaining());
+            chunk.put(encoded.slice(encoded.position(), n));
+            encoded.position(encoded.position() + n);
+        }
+    }
+
+    private void write() {
+        var batch = new ArrayList<ByteBuffer>();
+        var lastSync = System.nanoTime();
+        var unsyncedBytes = 0L;
+        while (true) {
+            long target;
+            boolean hasError;
+            boolean syncWanted;
+            boolean stopping;
+
+            lock.lock();
+            try {
+                while (filling.isEmpty() && !closed) {
+                    if (durability instanceof Durability.Interval interval && unsyncedBytes > 0) {
+                        var wait = interval.interval().toNanos() - (System.nanoTime() - lastSync);
+                        if (wait <= 0) {
+                            break;
+                        }
+                        hasWork.awaitNanos(wait);
+                    } else {
+                        hasWork.awaitUninterruptibly();
+                    }
+                }
+
+                batch.addAll(filling);
+                filling.clear();
+                target = appended;
+                hasError = fillingHasError;
+                fillingHasError = false;
+                syncWanted = syncRequested > synced;
+                stopping = closed;
+            } catch (InterruptedException e) {
+                // Only close stops the writer.
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            var bytes = 0L;
+            try {
+                var buffers = batch.toArray(ByteBuffer[]::new);
+                for (var buffer : buffers) {
+                    buffer.flip();
+                    bytes += buffer.remaining();
+                }
+                var written = 0L;
+                while (written < bytes) {
+                    written += channel.write(buffers);
+                }
+                unsyncedBytes += bytes;
+
+                var now = System.nanoTime();
+                var sync = unsyncedBytes > 0 && (syncWanted || stopping || policyWantsSync(now - lastSync, unsyncedBytes, hasError));
+                if (sync) {
+                    channel.force(false);
+                    lastSync = now;
+                    unsyncedBytes = 0;
+                }
+
+                lock.lock();
+                try {
+                    if (sync) {
+                        synced = target;
+                        durable.signalAll();
+                    }
+                    release(batch, bytes);
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write logs. Further logs will be dropped.");
+                e.printStackTrace();
+                lock.lock();
+                try {
+                    failure = e;
+                    closed = true;
+                    release(batch, bytes);
+                    durable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private boolean policyWantsSync(long sinceLastSync, long unsyncedBytes, boolean hasError) {
+        if (durability instanceof Durability.Interval interval) {
+            return sinceLastSync >= interval.interval().toNanos();
+        } else if (durability instanceof Durability.Bytes threshold) {
+            return unsyncedBytes >= threshold.bytes();
+        } else if (durability instanceof Durability.OnError) {
+            return hasError;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Gives written chunks back to the pool. Must be called while holding the lock.
+     */
+    private void release(ArrayList<ByteBuffer> batch, long bytes) {
+        for (var chunk : batch) {
+            freeChunks.add(chunk.clear());
+        }
+        batch.clear();
+        pendingBytes -= bytes;
+        hasRoom.signalAll();
+    }
+
+    /**
+     * Writes and syncs everything already queued, then closes the file.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            hasWork.signal();
+            hasRoom.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        var interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileChannelLogger[durability=" + durability + "]";
+    }
+}
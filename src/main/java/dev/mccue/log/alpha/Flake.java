@@ -1,6 +1,8 @@
 package dev.mccue.log.alpha;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
 
 // Taken from mulog
@@ -81,6 +83,15 @@ import java.util.concurrent.ThreadLocalRandom;
  * ```
  */
 public final class Flake implements Comparable<Flake> {
+    /**
+     * The number of characters in the base64 representation of a Flake.
+     */
+    public static final int FORMATTED_LENGTH = 32;
+
+    /**
+     * The number of characters in the hexadecimal representation of a Flake.
+     */
+    public static final int FORMATTED_HEX_LENGTH = 48;
 
     private static final char[] chars = new char[]{
             '-',
@@ -124,8 +135,15 @@ public final class Flake implements Comparable<Flake> {
     }
 
     public static Flake create() {
+        return create(NanoClock.currentTimeNanos());
+    }
+
+    /**
+     * Creates a flake for a time which has already been read from {@link NanoClock}.
+     */
+    static Flake create(long timeNanos) {
         ThreadLocalRandom tl = ThreadLocalRandom.current();
-        return new Flake(NanoClock.currentTimeNanos(), tl.nextLong(), tl.nextLong());
+        return new Flake(timeNanos, tl.nextLong(), tl.nextLong());
     }
 
     public static Flake makeFlake(long time, long rand1, long rand2) {
@@ -171,69 +189,288 @@ public final class Flake implements Comparable<Flake> {
      * these specific sections of bytes.
      */
     public static String formatFlake(Flake flakeId) {
+        char[] buf = new char[FORMATTED_LENGTH];
+        formatFlake(flakeId, buf, 0);
+        return new String(buf);
+    }
 
-        byte[] flake = flakeId.getBytes();
-        char[] buf = new char[32];
-        int bix = 0;
-
-        // TODO: maybe faster if loop is unrolled
-        for (int i = 0; i < flake.length; i += 3) {
-            int b1 = (flake[i] & 0b11111100) >>> 2;
-            int b2 = ((flake[i] & 0b00000011) << 4) | ((flake[i + 1] & 0b11110000) >>> 4);
-            int b3 = ((flake[i + 1] & 0b00001111) << 2) | ((flake[i + 2] & 0b11000000) >>> 6);
-            int b4 = (flake[i + 2] & 0b00111111);
-
-            buf[bix++] = chars[b1];
-            buf[bix++] = chars[b2];
-            buf[bix++] = chars[b3];
-            buf[bix++] = chars[b4];
+    /**
+     * Writes the base64 representation of the flake into the given array as ASCII.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The array to write into.
+     * @param offset  Where in the array to start writing.
+     * @return The offset just past the last byte written.
+     * @see Flake#formatFlake(Flake)
+     */
+    public static int formatFlake(Flake flakeId, byte[] dst, int offset) {
+        Objects.checkFromIndexSize(offset, FORMATTED_LENGTH, dst.length);
+        for (int i = 0; i < FORMATTED_LENGTH; i++) {
+            dst[offset + i] = (byte) chars[flakeId.sextet(i)];
         }
+        return offset + FORMATTED_LENGTH;
+    }
 
-        return new String(buf);
+    /**
+     * Writes the base64 representation of the flake into the given array.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The array to write into.
+     * @param offset  Where in the array to start writing.
+     * @return The offset just past the last char written.
+     * @see Flake#formatFlake(Flake)
+     */
+    public static int formatFlake(Flake flakeId, char[] dst, int offset) {
+        Objects.checkFromIndexSize(offset, FORMATTED_LENGTH, dst.length);
+        for (int i = 0; i < FORMATTED_LENGTH; i++) {
+            dst[offset + i] = chars[flakeId.sextet(i)];
+        }
+        return offset + FORMATTED_LENGTH;
+    }
+
+    /**
+     * Writes the base64 representation of the flake into the given buffer as ASCII,
+     * starting at its current position.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The buffer to write into. Its position will be advanced.
+     * @throws BufferOverflowException If there is not enough room remaining in the buffer.
+     * @see Flake#formatFlake(Flake)
+     */
+    public static void formatFlake(Flake flakeId, ByteBuffer dst) {
+        if (dst.remaining() < FORMATTED_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        var position = dst.position();
+        for (int i = 0; i < FORMATTED_LENGTH; i++) {
+            dst.put(position + i, (byte) chars[flakeId.sextet(i)]);
+        }
+        dst.position(position + FORMATTED_LENGTH);
+    }
+
+    /**
+     * Appends the base64 representation of the flake to the given builder.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The builder to append to.
+     * @see Flake#formatFlake(Flake)
+     */
+    public static void formatFlake(Flake flakeId, StringBuilder dst) {
+        dst.ensureCapacity(dst.length() + FORMATTED_LENGTH);
+        for (int i = 0; i < FORMATTED_LENGTH; i++) {
+            dst.append(chars[flakeId.sextet(i)]);
+        }
+    }
+
+    /**
+     * It returns the 6 bit value of a character in a Flake string
+     * in base64, -1 if it is not a valid character.
+     */
+    private static int base64Value(int c) {
+        int i = c - chars[0];
+        if (i < 0 || i >= reverseChars.length) return -1;
+        return reverseChars[i];
+    }
+
+    /**
+     * It returns the 4 bit value of a hexadecimal character,
+     * -1 if it is not a valid character.
+     */
+    private static int hexValue(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
     }
 
     /**
      * It parses a Flake string in base64 and returns
      * the corresponding bytes, null otherwise.
      */
-    private static byte[] base64ToBytes(String flake) {
-        if (flake == null || flake.length() != 32)
+    public static Flake parseFlake(String flake) {
+        if (flake == null)
+            return null;
+        else
+            return parseFlake(flake, 0, flake.length());
+    }
+
+    /**
+     * It parses a Flake in base64 from the given range of characters
+     * and returns it, null if the range does not hold a valid Flake.
+     *
+     * <p>Nothing is allocated other than the Flake itself.</p>
+     *
+     * @param flake The characters to parse from.
+     * @param start The start of the range, inclusive.
+     * @param end   The end of the range, exclusive.
+     * @return The parsed Flake or null.
+     * @see Flake#formatFlake(Flake)
+     */
+    public static Flake parseFlake(CharSequence flake, int start, int end) {
+        Objects.checkFromToIndex(start, end, flake.length());
+        if (end - start != FORMATTED_LENGTH)
             return null;
 
-        byte[] buf6 = new byte[32];  // 6 bits each byte
-        byte[] buf = new byte[24];  // 8 bits each byte
+        // Each character is shifted onto the bottom of a 192 bit number
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = start; i < end; i++) {
+            int v = base64Value(flake.charAt(i));
+            if (v == -1) return null;
+            time = (time << 6) | (rand1 >>> 58);
+            rand1 = (rand1 << 6) | (rand2 >>> 58);
+            rand2 = (rand2 << 6) | v;
+        }
+
+        return new Flake(time, rand1, rand2);
+    }
+
+    /**
+     * It parses a Flake in base64 from the given range of ASCII bytes
+     * and returns it, null if the range does not hold a valid Flake.
+     *
+     * @param flake  The bytes to parse from.
+     * @param offset The start of the range.
+     * @param length The length of the range.
+     * @return The parsed Flake or null.
+     * @see Flake#parseFlake(CharSequence, int, int)
+     */
+    public static Flake parseFlake(byte[] flake, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, flake.length);
+        if (length != FORMATTED_LENGTH)
+            return null;
 
-        // convert character to byte value
-        for (int i = 0; i < flake.length(); i++) {
-            int c = flake.charAt(i) - chars[0];
-            if (c < 0 || c > reverseChars.length) return null;
-            byte b = reverseChars[c];
-            if (b == -1) return null;
-            buf6[i] = b;
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int v = base64Value(flake[i] & 0xFF);
+            if (v == -1) return null;
+            time = (time << 6) | (rand1 >>> 58);
+            rand1 = (rand1 << 6) | (rand2 >>> 58);
+            rand2 = (rand2 << 6) | v;
         }
 
-        // compact 4 bytes of 6 bits each into
-        // 3 bytes of 8 bits
-        int bix = 0;
-        for (int i = 0; i < buf6.length; i += 4) {
-            buf[bix++] = (byte) ((buf6[i] << 2) | (buf6[i + 1] >>> 4));
-            buf[bix++] = (byte) (((buf6[i + 1] & 0b00001111) << 4) | (buf6[i + 2] >>> 2));
-            buf[bix++] = (byte) (((buf6[i + 2] & 0b00000011) << 6) | buf6[i + 3]);
+        return new Flake(time, rand1, rand2);
+    }
+
+    /**
+     * It parses a Flake in base64 from the ASCII bytes at the buffer's current position
+     * and returns it, null if there is not a valid Flake there.
+     *
+     * <p>The position of the buffer is advanced past the Flake only if one was parsed.</p>
+     *
+     * @param flake The buffer to parse from.
+     * @return The parsed Flake or null.
+     * @see Flake#parseFlake(CharSequence, int, int)
+     */
+    public static Flake parseFlake(ByteBuffer flake) {
+        if (flake.remaining() < FORMATTED_LENGTH)
+            return null;
+
+        int position = flake.position();
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = position; i < position + FORMATTED_LENGTH; i++) {
+            int v = base64Value(flake.get(i) & 0xFF);
+            if (v == -1) return null;
+            time = (time << 6) | (rand1 >>> 58);
+            rand1 = (rand1 << 6) | (rand2 >>> 58);
+            rand2 = (rand2 << 6) | v;
         }
 
-        return buf;
+        flake.position(position + FORMATTED_LENGTH);
+        return new Flake(time, rand1, rand2);
     }
 
     /**
-     * It parses a Flake string in base64 and returns
-     * the corresponding bytes, null otherwise.
+     * It parses a Flake string in hexadecimal, as produced by
+     * formatFlakeHex, and returns it, null otherwise.
      */
-    public static Flake parseFlake(String flake) {
-        byte[] bytes = base64ToBytes(flake);
-        if (bytes == null)
+    public static Flake parseFlakeHex(String flake) {
+        if (flake == null)
             return null;
         else
-            return Flake.makeFlake(bytes);
+            return parseFlakeHex(flake, 0, flake.length());
+    }
+
+    /**
+     * It parses a Flake in hexadecimal from the given range of characters
+     * and returns it, null if the range does not hold a valid Flake.
+     * Both lowercase and uppercase digits are accepted.
+     *
+     * @param flake The characters to parse from.
+     * @param start The start of the range, inclusive.
+     * @param end   The end of the range, exclusive.
+     * @return The parsed Flake or null.
+     * @see Flake#formatFlakeHex(Flake)
+     */
+    public static Flake parseFlakeHex(CharSequence flake, int start, int end) {
+        Objects.checkFromToIndex(start, end, flake.length());
+        if (end - start != FORMATTED_HEX_LENGTH)
+            return null;
+
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = start; i < end; i++) {
+            int v = hexValue(flake.charAt(i));
+            if (v == -1) return null;
+            time = (time << 4) | (rand1 >>> 60);
+            rand1 = (rand1 << 4) | (rand2 >>> 60);
+            rand2 = (rand2 << 4) | v;
+        }
+
+        return new Flake(time, rand1, rand2);
+    }
+
+    /**
+     * It parses a Flake in hexadecimal from the given range of ASCII bytes
+     * and returns it, null if the range does not hold a valid Flake.
+     *
+     * @param flake  The bytes to parse from.
+     * @param offset The start of the range.
+     * @param length The length of the range.
+     * @return The parsed Flake or null.
+     * @see Flake#parseFlakeHex(CharSequence, int, int)
+     */
+    public static Flake parseFlakeHex(byte[] flake, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, flake.length);
+        if (length != FORMATTED_HEX_LENGTH)
+            return null;
+
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int v = hexValue(flake[i] & 0xFF);
+            if (v == -1) return null;
+            time = (time << 4) | (rand1 >>> 60);
+            rand1 = (rand1 << 4) | (rand2 >>> 60);
+            rand2 = (rand2 << 4) | v;
+        }
+
+        return new Flake(time, rand1, rand2);
+    }
+
+    /**
+     * It parses a Flake in hexadecimal from the ASCII bytes at the buffer's current position
+     * and returns it, null if there is not a valid Flake there.
+     *
+     * <p>The position of the buffer is advanced past the Flake only if one was parsed.</p>
+     *
+     * @param flake The buffer to parse from.
+     * @return The parsed Flake or null.
+     * @see Flake#parseFlakeHex(CharSequence, int, int)
+     */
+    public static Flake parseFlakeHex(ByteBuffer flake) {
+        if (flake.remaining() < FORMATTED_HEX_LENGTH)
+            return null;
+
+        int position = flake.position();
+        long time = 0, rand1 = 0, rand2 = 0;
+        for (int i = position; i < position + FORMATTED_HEX_LENGTH; i++) {
+            int v = hexValue(flake.get(i) & 0xFF);
+            if (v == -1) return null;
+            time = (time << 4) | (rand1 >>> 60);
+            rand1 = (rand1 << 4) | (rand2 >>> 60);
+            rand2 = (rand2 << 4) | v;
+        }
+
+        flake.position(position + FORMATTED_HEX_LENGTH);
+        return new Flake(time, rand1, rand2);
     }
 
     /**
@@ -241,19 +478,119 @@ public final class Flake implements Comparable<Flake> {
      * in lowercase 48 chars long
      */
     public static String formatFlakeHex(Flake flakeId) {
+        char[] buf = new char[FORMATTED_HEX_LENGTH];
+        formatFlakeHex(flakeId, buf, 0);
+        return new String(buf);
+    }
 
-        byte[] flake = flakeId.getBytes();
-        char[] buf = new char[48];
+    /**
+     * Writes the hexadecimal representation of the flake into the given array as ASCII.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The array to write into.
+     * @param offset  Where in the array to start writing.
+     * @return The offset just past the last byte written.
+     * @see Flake#formatFlakeHex(Flake)
+     */
+    public static int formatFlakeHex(Flake flakeId, byte[] dst, int offset) {
+        Objects.checkFromIndexSize(offset, FORMATTED_HEX_LENGTH, dst.length);
+        for (int i = 0; i < FORMATTED_HEX_LENGTH; i++) {
+            dst[offset + i] = (byte) hexChars[flakeId.nibble(i)];
+        }
+        return offset + FORMATTED_HEX_LENGTH;
+    }
 
-        for (int i = 0; i < flake.length; i++) {
-            int b1 = (flake[i] & 0b11110000) >>> 4;
-            int b2 = (flake[i] & 0b00001111);
+    /**
+     * Writes the hexadecimal representation of the flake into the given array.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The array to write into.
+     * @param offset  Where in the array to start writing.
+     * @return The offset just past the last char written.
+     * @see Flake#formatFlakeHex(Flake)
+     */
+    public static int formatFlakeHex(Flake flakeId, char[] dst, int offset) {
+        Objects.checkFromIndexSize(offset, FORMATTED_HEX_LENGTH, dst.length);
+        for (int i = 0; i < FORMATTED_HEX_LENGTH; i++) {
+            dst[offset + i] = hexChars[flakeId.nibble(i)];
+        }
+        return offset + FORMATTED_HEX_LENGTH;
+    }
+
+    /**
+     * Writes the hexadecimal representation of the flake into the given buffer as ASCII,
+     * starting at its current position.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The buffer to write into. Its position will be advanced.
+     * @throws BufferOverflowException If there is not enough room remaining in the buffer.
+     * @see Flake#formatFlakeHex(Flake)
+     */
+    public static void formatFlakeHex(Flake flakeId, ByteBuffer dst) {
+        if (dst.remaining() < FORMATTED_HEX_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        var position = dst.position();
+        for (int i = 0; i < FORMATTED_HEX_LENGTH; i++) {
+            dst.put(position + i, (byte) hexChars[flakeId.nibble(i)]);
+        }
+        dst.position(position + FORMATTED_HEX_LENGTH);
+    }
 
-            buf[i * 2] = hexChars[b1];
-            buf[i * 2 + 1] = hexChars[b2];
+    /**
+     * Appends the hexadecimal representation of the flake to the given builder.
+     *
+     * @param flakeId The flake to format.
+     * @param dst     The builder to append to.
+     * @see Flake#formatFlakeHex(Flake)
+     */
+    public static void formatFlakeHex(Flake flakeId, StringBuilder dst) {
+        dst.ensureCapacity(dst.length() + FORMATTED_HEX_LENGTH);
+        for (int i = 0; i < FORMATTED_HEX_LENGTH; i++) {
+            dst.append(hexChars[flakeId.nibble(i)]);
         }
+    }
 
-        return new String(buf);
+    long timePart() {
+        return timePart;
+    }
+
+    long rand1Part() {
+        return rand1Part;
+    }
+
+    long rand2Part() {
+        return rand2Part;
+    }
+
+    private long part(int index) {
+        return index == 0 ? timePart : index == 1 ? rand1Part : rand2Part;
+    }
+
+    /**
+     * Grabs the i-th group of 6 bits, counting from the most significant bit of
+     * the time part. This is the same as taking every 3 bytes from getBytes and splitting them
+     * into 4 chunks, but without materializing the bytes.
+     */
+    private int sextet(int i) {
+        int bit = i * 6;
+        int word = bit >>> 6;
+        int offset = bit & 63;
+        if (offset <= 58) {
+            return (int) (part(word) >>> (58 - offset)) & 0b111111;
+        } else {
+            // Straddles two longs
+            return (int) ((part(word) << (offset - 58)) | (part(word + 1) >>> (122 - offset))) & 0b111111;
+        }
+    }
+
+    /**
+     * Grabs the i-th group of 4 bits, counting from the most significant bit of
+     * the time part.
+     */
+    private int nibble(int i) {
+        int bit = i * 4;
+        return (int) (part(bit >>> 6) >>> (60 - (bit & 63))) & 0b1111;
     }
 
     public byte[] getBytes() {
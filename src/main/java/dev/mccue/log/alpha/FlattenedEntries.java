@@ -0,0 +1,55 @@
+package dev.mccue.log.alpha;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The entries of a context node merged with those of all its parents.
+ *
+ * <p>Nearer entries come first and win over entries in parents with the same key.</p>
+ */
+record FlattenedEntries(List<Log.Entry> entries, Map<String, Log.Entry> index) {
+    private static final FlattenedEntries EMPTY = new FlattenedEntries(List.of(), Map.of());
+
+    static FlattenedEntries of(Log.Context context) {
+        if (context instanceof Log.Context.Child.Plain plain) {
+            return plain.flattened();
+        } else if (context instanceof Log.Context.Child.Span span) {
+            return of(span.parent());
+        } else if (context instanceof Log.Context.Global global) {
+            return global.flattened();
+        } else {
+            return EMPTY;
+        }
+    }
+
+    static FlattenedEntries of(List<Log.Entry> own, FlattenedEntries parent) {
+        if (parent == null) {
+            parent = EMPTY;
+        }
+        if (own.isEmpty()) {
+            return parent;
+        }
+
+        var entries = new ArrayList<Log.Entry>(own.size() + parent.entries.size());
+        var index = new HashMap<String, Log.Entry>();
+        for (var entry : own) {
+            if (index.putIfAbsent(entry.key(), entry) == null) {
+                entries.add(entry);
+            }
+        }
+        for (var entry : parent.entries) {
+            if (index.putIfAbsent(entry.key(), entry) == null) {
+                entries.add(entry);
+            }
+        }
+
+        return new FlattenedEntries(
+                Collections.unmodifiableList(entries),
+                Collections.unmodifiableMap(index)
+        );
+    }
+}
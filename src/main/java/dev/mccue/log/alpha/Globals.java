@@ -8,8 +8,8 @@ class Globals {
             new AtomicReference<>(new Log.Context.Global(List.of()));
 
     /*
-     * This should be an extent local when it is possible to be so.
+     * A scoped value when the JVM has final ones or they are asked for, a thread local otherwise.
      */
-    static final ThreadLocal<Log.Context.Child> LOCAL_CONTEXT =
-            new ThreadLocal<>();
+    static final ContextStorage LOCAL_CONTEXT =
+            ContextStorage.select();
 }
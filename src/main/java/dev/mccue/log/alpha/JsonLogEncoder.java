@@ -0,0 +1,604 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Writes logs as lines of JSON, encoded as UTF-8.
+ *
+ * <p>Everything is written directly into a reusable byte buffer. Numbers, instants, durations, UUIDs and
+ * flakes are formatted without going through a {@link String}, and the escaped bytes for entry keys are
+ * cached. Non-integral floating point numbers are the exception and go through {@link Double#toString(double)}.</p>
+ *
+ * {@snippet lang=json :
+ * {"flake":"4Q4YzoU1yB5zr0o1IHTXGWLN9tA0AHA5","level":"INFO","namespace":"com.acme.Api","name":"request","thread":"main","happened-at":"2022-05-01T12:00:00.000000001Z","entries":{"user-id":123}}
+ * }
+ *
+ * <p>Spans have {@code started-at}, {@code duration} and {@code outcome} in place of {@code happened-at}.
+ * When the outcome is {@code error} the throwable is under {@code error}. The {@code entries} object
+ * holds the entries of the log followed by those of its context, as given by {@link Log#flattenedEntries()}.</p>
+ *
+ * <p>An encoder keeps a reusable buffer, so it should not be shared between threads.</p>
+ */
+public final class JsonLogEncoder implements LogEncoder {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CACHED_KEYS = 1024;
+    private static final int MAX_THROWABLE_DEPTH = 64;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] LEVELS;
+
+    static {
+        var levels = Log.Level.values();
+        LEVELS = new byte[levels.length][];
+        for (var level : levels) {
+            LEVELS[level.ordinal()] = (",\"level\":\"" + level.name() + "\"").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final HashMap<String, byte[]> keys;
+    private byte[] buf;
+    private int pos;
+    private ByteBuffer view;
+
+    public JsonLogEncoder() {
+        this.keys = new HashMap<>();
+        this.buf = new byte[INITIAL_CAPACITY];
+        this.pos = 0;
+        this.view = ByteBuffer.wrap(buf);
+    }
+
+    /**
+     * Encodes the log as a single line of JSON, including the trailing newline.
+     *
+     * @param log The log to encode.
+     * @return A buffer holding the line between its position and limit. Only valid until the next call
+     * to this encoder.
+     */
+    @Override
+    public ByteBuffer encode(Log log) {
+        Objects.requireNonNull(log, "log must not be null");
+        pos = 0;
+        writeLog(log);
+        if (view.array() != buf) {
+            view = ByteBuffer.wrap(buf);
+        }
+        return view.clear().limit(pos);
+    }
+
+    /**
+     * Encodes the log as a single line of JSON into the given buffer, starting at its position.
+     *
+     * @param log The log to encode.
+     * @param dst The buffer to write to. Its position will be advanced past the line.
+     * @throws BufferOverflowException If the line does not fit. Nothing is written in that case.
+     */
+    public void encode(Log log, ByteBuffer dst) {
+        var encoded = encode(log);
+        if (dst.remaining() < encoded.remaining()) {
+            throw new BufferOverflowException();
+        }
+        dst.put(encoded);
+    }
+
+    /**
+     * Encodes the log as a single line of JSON and writes it to the given stream.
+     *
+     * @param log The log to encode.
+     * @param out The stream to write to.
+     * @throws IOException If writing to the stream fails.
+     */
+    public void write(Log log, OutputStream out) throws IOException {
+        encode(log);
+        out.write(buf, 0, pos);
+    }
+
+    private void writeLog(Log log) {
+        writeAscii("{\"flake\":\"");
+        ensure(Flake.FORMATTED_LENGTH);
+        pos = Flake.formatFlake(log.flake(), buf, pos);
+        writeByte('"');
+
+        writeBytes(LEVELS[log.level().ordinal()]);
+        writeAscii(",\"namespace\":");
+        writeString(log.category().namespace());
+        writeAscii(",\"name\":");
+        writeString(log.category().name());
+        writeAscii(",\"thread\":");
+        writeString(log.thread().name());
+
+        if (log instanceof Log.Event event) {
+            writeAscii(",\"happened-at\":");
+            writeInstant(event.occurrence().happenedAt());
+        } else if (log instanceof Log.Span span) {
+            writeAscii(",\"started-at\":");
+            writeInstant(
+                    Math.floorDiv(span.occurrence().startedAtNanos(), 1_000_000_000L),
+                    (int) Math.floorMod(span.occurrence().startedAtNanos(), 1_000_000_000L)
+            );
+            writeAscii(",\"duration\":");
+            writeDuration(
+                    Math.floorDiv(span.occurrence().lastedNanos(), 1_000_000_000L),
+                    (int) Math.floorMod(span.occurrence().lastedNanos(), 1_000_000_000L)
+            );
+            if (span.outcome() instanceof Log.Span.Outcome.Error error) {
+                writeAscii(",\"outcome\":\"error\",\"error\":");
+                writeThrowable(error.throwable(), 0);
+            } else {
+                writeAscii(",\"outcome\":\"ok\"");
+            }
+        }
+
+        writeAscii(",\"entries\":{");
+        var first = true;
+        for (var entry : log.flattenedEntries()) {
+            if (!first) {
+                writeByte(',');
+            }
+            first = false;
+            writeKey(entry.key());
+            writeValue(entry.value());
+        }
+        writeAscii("}}\n");
+    }
+
+    private void writeKey(String key) {
+        var bytes = keys.get(key);
+        if (bytes == null) {
+            var start = pos;
+            writeString(key);
+            writeByte(':');
+            if (keys.size() < MAX_CACHED_KEYS) {
+                keys.put(key, Arrays.copyOfRange(buf, start, pos));
+            }
+        } else {
+            writeBytes(bytes);
+        }
+    }
+
+    private void writeValue(Log.Entry.Value value) {
+        if (value instanceof Log.Entry.Value.Lazy lazy) {
+            value = lazy.value();
+        }
+
+        if (value instanceof Log.Entry.Value.String s) {
+            writeString(s.value());
+        } else if (value instanceof Log.Entry.Value.Boolean b) {
+            writeAscii(b.value() ? "true" : "false");
+        } else if (value instanceof Log.Entry.Value.Byte b) {
+            writeLong(b.value());
+        } else if (value instanceof Log.Entry.Value.Character c) {
+            writeByte('"');
+            writeEscaped(c.value(), 0);
+            writeByte('"');
+        } else if (value instanceof Log.Entry.Value.Short s) {
+            writeLong(s.value());
+        } else if (value instanceof Log.Entry.Value.Integer i) {
+            writeLong(i.value());
+        } else if (value instanceof Log.Entry.Value.Long l) {
+            writeLong(l.value());
+        } else if (value instanceof Log.Entry.Value.Float f) {
+            writeDouble(f.value(), true);
+        } else if (value instanceof Log.Entry.Value.Double d) {
+            writeDouble(d.value(), false);
+        } else if (value instanceof Log.Entry.Value.UUID uuid) {
+            writeUUID(uuid.value());
+        } else if (value instanceof Log.Entry.Value.URI uri) {
+            writeString(uri.value().toString());
+        } else if (value instanceof Log.Entry.Value.Instant instant) {
+            writeInstant(instant.value());
+        } else if (value instanceof Log.Entry.Value.LocalDateTime localDateTime) {
+            var date = localDateTime.value().toLocalDate();
+            var time = localDateTime.value().toLocalTime();
+            if (!writeableYear(date.getYear())) {
+                writeString(localDateTime.value().toString());
+            } else {
+                writeByte('"');
+                writeDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+                writeByte('T');
+                writeTime(time.getHour(), time.getMinute(), time.getSecond(), time.getNano());
+                writeByte('"');
+            }
+        } else if (value instanceof Log.Entry.Value.LocalDate localDate) {
+            writeLocalDate(localDate.value());
+        } else if (value instanceof Log.Entry.Value.LocalTime localTime) {
+            writeLocalTime(localTime.value());
+        } else if (value instanceof Log.Entry.Value.Duration duration) {
+            writeDuration(duration.value());
+        } else if (value instanceof Log.Entry.Value.Throwable throwable) {
+            writeThrowable(throwable.value(), 0);
+        } else if (value instanceof Log.Entry.Value.List list) {
+            writeByte('[');
+            var first = true;
+            for (var v : list.value()) {
+                if (!first) {
+                    writeByte(',');
+                }
+                first = false;
+                writeValue(v);
+            }
+            writeByte(']');
+        } else if (value instanceof Log.Entry.Value.Map map) {
+            writeByte('{');
+            var first = true;
+            for (var entry : map.value().entrySet()) {
+                if (!first) {
+                    writeByte(',');
+                }
+                first = false;
+                writeKey(entry.getKey());
+                writeValue(entry.getValue());
+            }
+            writeByte('}');
+        } else if (value instanceof Log.Entry.Value.Set set) {
+            writeByte('[');
+            var first = true;
+            for (var v : set.value()) {
+                if (!first) {
+                    writeByte(',');
+                }
+                first = false;
+                writeValue(v);
+            }
+            writeByte(']');
+        } else {
+            writeAscii("null");
+        }
+    }
+
+    private void writeThrowable(Throwable throwable, int depth) {
+        writeAscii("{\"class\":");
+        writeString(throwable.getClass().getName());
+        if (throwable.getMessage() != null) {
+            writeAscii(",\"message\":");
+            writeString(throwable.getMessage());
+        }
+
+        writeAscii(",\"stack-trace\":[");
+        var stackTrace = throwable.getStackTrace();
+        for (int i = 0; i < stackTrace.length; i++) {
+            var frame = stackTrace[i];
+            if (i != 0) {
+                writeByte(',');
+            }
+            writeByte('"');
+            writeEscaped(frame.getClassName());
+            writeByte('.');
+            writeEscaped(frame.getMethodName());
+            writeByte('(');
+            if (frame.isNativeMethod()) {
+                writeAscii("Native Method");
+            } else if (frame.getFileName() == null) {
+                writeAscii("Unknown Source");
+            } else {
+                writeEscaped(frame.getFileName());
+                if (frame.getLineNumber() >= 0) {
+                    writeByte(':');
+                    writeLong(frame.getLineNumber());
+                }
+            }
+            writeAscii(")\"");
+        }
+        writeByte(']');
+
+        var cause = throwable.getCause();
+        if (cause != null && cause != throwable && depth < MAX_THROWABLE_DEPTH) {
+            writeAscii(",\"cause\":");
+            writeThrowable(cause, depth + 1);
+        }
+
+        var suppressed = throwable.getSuppressed();
+        if (suppressed.length > 0 && depth < MAX_THROWABLE_DEPTH) {
+            writeAscii(",\"suppressed\":[");
+            for (int i = 0; i < suppressed.length; i++) {
+                if (i != 0) {
+                    writeByte(',');
+                }
+                writeThrowable(suppressed[i], depth + 1);
+            }
+            writeByte(']');
+        }
+        writeByte('}');
+    }
+
+    private void writeUUID(java.util.UUID uuid) {
+        ensure(38);
+        buf[pos++] = '"';
+        var msb = uuid.getMostSignificantBits();
+        var lsb = uuid.getLeastSignificantBits();
+        writeHex(msb >>> 32, 8);
+        buf[pos++] = '-';
+        writeHex(msb >>> 16, 4);
+        buf[pos++] = '-';
+        writeHex(msb, 4);
+        buf[pos++] = '-';
+        writeHex(lsb >>> 48, 4);
+        buf[pos++] = '-';
+        writeHex(lsb, 12);
+        buf[pos++] = '"';
+    }
+
+    private void writeHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        pos += digits;
+    }
+
+    /*
+     * Years outside of 0000-9999 need a sign and extra digits in ISO-8601. They are rare enough
+     * to leave to the JDK.
+     */
+    private static boolean writeableYear(int year) {
+        return year >= 0 && year <= 9999;
+    }
+
+    private void writeInstant(Instant instant) {
+        writeInstant(instant.getEpochSecond(), instant.getNano());
+    }
+
+    private void writeInstant(long seconds, int nano) {
+        var epochDay = Math.floorDiv(seconds, 86400);
+        var secondOfDay = Math.floorMod(seconds, 86400);
+
+        // Days to civil date, from Howard Hinnant's date algorithms
+        var z = epochDay + 719468;
+        var era = Math.floorDiv(z, 146097);
+        var dayOfEra = z - era * 146097;
+        var yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        var dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        var mp = (5 * dayOfYear + 2) / 153;
+        var day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        var month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        var year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (!writeableYear((int) year) || year != (int) year) {
+            writeString(Instant.ofEpochSecond(seconds, nano).toString());
+            return;
+        }
+
+        writeByte('"');
+        writeDate((int) year, month, day);
+        writeByte('T');
+        writeTime(secondOfDay / 3600, (secondOfDay / 60) % 60, secondOfDay % 60, nano);
+        writeAscii("Z\"");
+    }
+
+    private void writeLocalDate(LocalDate date) {
+        if (!writeableYear(date.getYear())) {
+            writeString(date.toString());
+            return;
+        }
+        writeByte('"');
+        writeDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        writeByte('"');
+    }
+
+    private void writeLocalTime(LocalTime time) {
+        writeByte('"');
+        writeTime(time.getHour(), time.getMinute(), time.getSecond(), time.getNano());
+        writeByte('"');
+    }
+
+    private void writeDate(int year, int month, int day) {
+        ensure(10);
+        writeDigits(year, 4);
+        buf[pos++] = '-';
+        writeDigits(month, 2);
+        buf[pos++] = '-';
+        writeDigits(day, 2);
+    }
+
+    private void writeTime(int hour, int minute, int second, int nano) {
+        ensure(18);
+        writeDigits(hour, 2);
+        buf[pos++] = ':';
+        writeDigits(minute, 2);
+        buf[pos++] = ':';
+        writeDigits(second, 2);
+        writeFraction(nano);
+    }
+
+    /**
+     * Writes nanoseconds the same way {@link Instant#toString()} does, in groups of three digits.
+     */
+    private void writeFraction(int nano) {
+        if (nano == 0) {
+            return;
+        }
+        ensure(10);
+        buf[pos++] = '.';
+        if (nano % 1_000_000 == 0) {
+            writeDigits(nano / 1_000_000, 3);
+        } else if (nano % 1000 == 0) {
+            writeDigits(nano / 1000, 6);
+        } else {
+            writeDigits(nano, 9);
+        }
+    }
+
+    private void writeDigits(int value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += digits;
+    }
+
+    /**
+     * Writes the duration in ISO-8601 as a number of seconds, e.g. {@code "PT1.5S"}.
+     */
+    private void writeDuration(Duration duration) {
+        writeDuration(duration.getSeconds(), duration.getNano());
+    }
+
+    private void writeDuration(long seconds, int nano) {
+        writeAscii("\"PT");
+        if (seconds < 0) {
+            writeByte('-');
+            if (nano != 0) {
+                seconds += 1;
+                nano = 1_000_000_000 - nano;
+            }
+            if (seconds == Long.MIN_VALUE) {
+                writeAscii("9223372036854775808");
+            } else {
+                writeLong(-seconds);
+            }
+        } else {
+            writeLong(seconds);
+        }
+        writeFraction(nano);
+        writeAscii("S\"");
+    }
+
+    private void writeDouble(double value, boolean isFloat) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // Not representable as JSON numbers
+            writeString(Double.toString(value));
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            if (value == 0 && 1 / value < 0) {
+                writeByte('-');
+            }
+            writeLong((long) value);
+            writeAscii(".0");
+        } else {
+            writeAscii(isFloat ? Float.toString((float) value) : Double.toString(value));
+        }
+    }
+
+    private void writeLong(long value) {
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+
+        var digits = 1;
+        for (var v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += digits;
+    }
+
+    private void writeString(String s) {
+        writeByte('"');
+        writeEscaped(s);
+        writeByte('"');
+    }
+
+    private void writeEscaped(String s) {
+        var length = s.length();
+        for (int i = 0; i < length; i++) {
+            i = writeEscaped(s.charAt(i), i, s);
+        }
+    }
+
+    private int writeEscaped(char c, int i) {
+        return writeEscaped(c, i, null);
+    }
+
+    /**
+     * Writes a single char as escaped UTF-8. Surrogate pairs are combined when the rest of the string is given.
+     *
+     * @return The index of the last char consumed.
+     */
+    private int writeEscaped(char c, int i, String s) {
+        ensure(6);
+        if (c < 0x80) {
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                buf[pos++] = (byte) c;
+            } else {
+                buf[pos++] = '\\';
+                switch (c) {
+                    case '"' -> buf[pos++] = '"';
+                    case '\\' -> buf[pos++] = '\\';
+                    case '\n' -> buf[pos++] = 'n';
+                    case '\r' -> buf[pos++] = 'r';
+                    case '\t' -> buf[pos++] = 't';
+                    case '\b' -> buf[pos++] = 'b';
+                    case '\f' -> buf[pos++] = 'f';
+                    default -> {
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                    }
+                }
+            }
+        } else if (c < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (s != null
+                    && Character.isHighSurrogate(c)
+                    && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                return i + 1;
+            } else {
+                // Lone surrogates can't be encoded as UTF-8, but they can be escaped
+                buf[pos++] = '\\';
+                buf[pos++] = 'u';
+                buf[pos++] = HEX[(c >> 12) & 0xF];
+                buf[pos++] = HEX[(c >> 8) & 0xF];
+                buf[pos++] = HEX[(c >> 4) & 0xF];
+                buf[pos++] = HEX[c & 0xF];
+            }
+        } else {
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void writeAscii(String s) {
+        var length = s.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensure(1);
+        buf[pos++] = (byte) c;
+    }
+
+    private void ensure(int bytes) {
+        if (buf.length - pos < bytes) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+        }
+    }
+}
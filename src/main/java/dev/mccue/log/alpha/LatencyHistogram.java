@@ -0,0 +1,90 @@
+package dev.mccue.log.alpha;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of nanosecond durations.
+ *
+ * <p>Values below 32 get a bucket each. Above that, every power of two is split into 16 equal
+ * buckets, so any recorded value is reported within about 6% of what it was. Recording is a
+ * single atomic increment, plus an update of the maximum when it grows.</p>
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        var mantissa = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF + (mantissa - HALF);
+    }
+
+    /**
+     * @return The largest value which falls into the bucket.
+     */
+    static long highestInBucket(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        var shift = (index - SUB_BUCKETS) / HALF + 1;
+        long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts.getAndIncrement(index(value));
+        var currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Takes everything recorded since the last call and resets the histogram.
+     *
+     * <p>Values recorded while this is running end up in either this snapshot or the next,
+     * never both.</p>
+     */
+    Snapshot snapshotAndReset() {
+        var taken = new long[BUCKETS];
+        var total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                taken[i] = counts.getAndSet(i, 0);
+                total += taken[i];
+            }
+        }
+        return new Snapshot(taken, total, max.getAndSet(0));
+    }
+
+    record Snapshot(long[] counts, long count, long max) {
+        /**
+         * @param quantile Between 0 and 1.
+         * @return A value at least as large as the given fraction of recorded values, but never more than the max.
+         */
+        long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            var rank = Math.max(1, (long) Math.ceil(quantile * count));
+            var seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestInBucket(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.mccue.log.alpha;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * An immutable set of minimum levels by namespace prefix, compiled into a trie of namespace
+ * segments. The most specific prefix wins, so with com.acme=WARN and com.acme.db=DEBUG a log
+ * in com.acme.db.pool is let through at DEBUG and one in com.acme.web only at WARN.
+ *
+ * Walking the trie splits the namespace, so the answer for each interned category is cached by
+ * its id and every later lookup is an array read. Categories which aren't interned, or whose ids
+ * are past the size of the cache, are looked up every time rather than interned here, so categories
+ * made on the fly can't grow the cache or the intern table. A fresh instance is built for every
+ * change, which throws the cache away along with the rules it was computed from.
+ */
+final class LevelThresholds {
+    // A threshold past every level, for namespaces which should log nothing.
+    static final int OFF = Log.Level.values().length;
+
+    private static final int UNSET = -1;
+    private static final int MAX_CACHED_ID = 1 << 16;
+
+    private final Map<String, Integer> levels;
+    private final Node root;
+    // Threshold plus one by category id, with zero meaning not yet looked up. Grown by copying,
+    // and entries are only ever written with the one value they can have, so racing is harmless.
+    private volatile byte[] cache;
+
+    private static final class Node {
+        final HashMap<String, Node> children = new HashMap<>();
+        int threshold = UNSET;
+    }
+
+    /**
+     * @param levels The minimum level for each namespace, as an ordinal of {@link Log.Level} or
+     *               {@link #OFF}. The empty namespace is the default for everything else.
+     */
+    private LevelThresholds(Map<String, Integer> levels) {
+        this.levels = levels;
+        this.root = new Node();
+        this.root.threshold = 0;
+        levels.forEach((namespace, threshold) -> {
+            var node = root;
+            if (!namespace.isEmpty()) {
+                for (var segment : namespace.split("\\.", -1)) {
+                    node = node.children.computeIfAbsent(segment, __ -> new Node());
+                }
+            }
+            node.threshold = threshold;
+        });
+        this.cache = new byte[64];
+    }
+
+    /**
+     * Parses levels as they appear in a properties file, with namespaces as keys and level names,
+     * or {@code OFF}, as values. The key {@code *} sets the default.
+     *
+     * @throws IllegalArgumentException If a value is not a level.
+     */
+    static LevelThresholds parse(Map<?, ?> properties) {
+        var levels = new LinkedHashMap<String, Integer>();
+        properties.forEach((key, value) -> {
+            var namespace = String.valueOf(key).strip();
+            var level = String.valueOf(value).strip().toUpperCase();
+            levels.put(
+                    namespace.equals("*") ? "" : namespace,
+                    level.equals("OFF") ? OFF : Log.Level.valueOf(level).ordinal()
+            );
+        });
+        return new LevelThresholds(levels);
+    }
+
+    static LevelThresholds of(Map<String, Log.Level> levels) {
+        var thresholds = new LinkedHashMap<String, Integer>();
+        levels.forEach((namespace, level) -> thresholds.put(
+                Objects.requireNonNull(namespace, "namespace must not be null"),
+                Objects.requireNonNull(level, "level must not be null").ordinal()
+        ));
+        return new LevelThresholds(thresholds);
+    }
+
+    boolean isEnabled(Log.Level level, Log.Category category) {
+        return level.ordinal() >= threshold(category);
+    }
+
+    int threshold(Log.Category category) {
+        if (!category.isInterned()) {
+            return lookup(category.namespace());
+        }
+        var id = category.id();
+        if (id >= MAX_CACHED_ID) {
+            return lookup(category.namespace());
+        }
+        var cache = this.cache;
+        if (id < cache.length) {
+            var cached = cache[id];
+            if (cached != 0) {
+                return cached - 1;
+            }
+        }
+
+        var threshold = lookup(category.namespace());
+        if (id >= cache.length) {
+            cache = Arrays.copyOf(cache, Math.min(Math.max(id + 1, cache.length * 2), MAX_CACHED_ID));
+            cache[id] = (byte) (threshold + 1);
+            this.cache = cache;
+        } else {
+            cache[id] = (byte) (threshold + 1);
+        }
+        return threshold;
+    }
+
+    private int lookup(String namespace) {
+        var node = root;
+        var threshold = root.threshold;
+        var start = 0;
+        while (start <= namespace.length() && !namespace.isEmpty()) {
+            var end = namespace.indexOf('.', start);
+            if (end < 0) {
+                end = namespace.length();
+            }
+            node = node.children.get(namespace.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            if (node.threshold != UNSET) {
+                threshold = node.threshold;
+            }
+            start = end + 1;
+        }
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        var levels = new LinkedHashMap<String, String>();
+        this.levels.forEach((namespace, threshold) -> levels.put(
+                namespace.isEmpty() ? "*" : namespace,
+                threshold == OFF ? "OFF" : Log.Level.values()[threshold].name()
+        ));
+        return "LevelThresholds" + levels;
+    }
+}
@@ -1,7 +1,16 @@
 package dev.mccue.log.alpha;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -13,7 +22,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
 
     Context context();
 
-    Thread thread();
+    ThreadInfo thread();
 
     Flake flake();
 
@@ -26,7 +35,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
     List<Entry> entries();
 
     record Event(@Override Context context,
-                 @Override Thread thread,
+                 @Override ThreadInfo thread,
                  @Override Flake flake,
                  @Override Occurrence.PointInTime occurrence,
                  @Override Level level,
@@ -34,7 +43,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
                  @Override List<Entry> entries) implements Log {
         public Event(
                 Context context,
-                Thread thread,
+                ThreadInfo thread,
                 Flake flake,
                 Occurrence.PointInTime occurrence,
                 Level level,
@@ -47,21 +56,33 @@ public sealed interface Log extends Iterable<Log.Entry> {
             this.occurrence = Objects.requireNonNull(occurrence, "startedAt must not be null");
             this.level = Objects.requireNonNull(level, "level must not be null");
             this.category = Objects.requireNonNull(category, "category must not be null");
-            this.entries = List.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+            this.entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+        }
+
+        public Event(
+                Level level,
+                Category category,
+                List<Entry> entries
+        ) {
+            this(Context.current(), ThreadInfo.current(), Flake.create(), new Occurrence.PointInTime(Instant.now()), level, category, entries);
         }
 
         public Event(
+                Context context,
+                Thread thread,
+                Flake flake,
+                Occurrence.PointInTime occurrence,
                 Level level,
                 Category category,
                 List<Entry> entries
         ) {
-            this(Context.current(), Thread.currentThread(), Flake.create(), new Occurrence.PointInTime(Instant.now()), level, category, entries);
+            this(context, ThreadInfo.of(thread), flake, occurrence, level, category, entries);
         }
     }
 
     record Span(
             @Override Context context,
-            @Override Thread thread,
+            @Override ThreadInfo thread,
             @Override Flake flake,
             Outcome outcome,
             @Override Occurrence.SpanOfTime occurrence,
@@ -84,7 +105,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
 
         public Span(
                 Context context,
-                Thread thread,
+                ThreadInfo thread,
                 Flake flake,
                 Outcome outcome,
                 Occurrence.SpanOfTime occurrence,
@@ -99,7 +120,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
             this.occurrence = Objects.requireNonNull(occurrence, "startedAt must not be null");
             this.level = Objects.requireNonNull(level, "level must not be null");
             this.category = Objects.requireNonNull(category, "category must not be null");
-            this.entries = List.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+            this.entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
         }
 
         public Span(
@@ -109,7 +130,20 @@ public sealed interface Log extends Iterable<Log.Entry> {
                 Category category,
                 List<Entry> entries
         ) {
-            this(Context.current(), Thread.currentThread(), Flake.create(), outcome, occurrence, level, category, entries);
+            this(Context.current(), ThreadInfo.current(), Flake.create(), outcome, occurrence, level, category, entries);
+        }
+
+        public Span(
+                Context context,
+                Thread thread,
+                Flake flake,
+                Outcome outcome,
+                Occurrence.SpanOfTime occurrence,
+                Level level,
+                Category category,
+                List<Entry> entries
+        ) {
+            this(context, ThreadInfo.of(thread), flake, outcome, occurrence, level, category, entries);
         }
     }
 
@@ -117,7 +151,35 @@ public sealed interface Log extends Iterable<Log.Entry> {
         record PointInTime(Instant happenedAt) implements Occurrence {
         }
 
-        record SpanOfTime(Instant startedAt, java.time.Duration lasted) implements Occurrence {
+        /**
+         * A span of time, kept as raw nanoseconds so it can be recorded without allocating.
+         *
+         * @param startedAtNanos When the span started, in nanoseconds since the epoch.
+         * @param lastedNanos    How long the span lasted, in nanoseconds.
+         */
+        record SpanOfTime(long startedAtNanos, long lastedNanos) implements Occurrence {
+            /**
+             * @throws ArithmeticException If the start is too far from the epoch to count in nanoseconds,
+             *                             which is roughly 292 years either side of it.
+             */
+            public SpanOfTime(Instant startedAt, java.time.Duration lasted) {
+                this(
+                        epochNanos(Objects.requireNonNull(startedAt, "startedAt must not be null")),
+                        Objects.requireNonNull(lasted, "lasted must not be null").toNanos()
+                );
+            }
+
+            public Instant startedAt() {
+                return Instant.ofEpochSecond(0, startedAtNanos);
+            }
+
+            public java.time.Duration lasted() {
+                return java.time.Duration.ofNanos(lastedNanos);
+            }
+
+            static long epochNanos(Instant instant) {
+                return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+            }
         }
     }
 
@@ -125,7 +187,9 @@ public sealed interface Log extends Iterable<Log.Entry> {
      * Takes a list of log entries and executes a block of code where those entries will
      * be added to any logs.
      *
-     * <p>Context is not propagated across threads at this time.</p>
+     * <p>Context is not propagated to threads started by the block of code, with one exception.
+     * When the JVM supports {@code ScopedValue}, subtasks forked inside of a {@code StructuredTaskScope}
+     * will see the context.</p>
      * <p>
      * {@snippet :
      * var response = Log.withContext(
@@ -202,15 +266,13 @@ public sealed interface Log extends Iterable<Log.Entry> {
      */
     static <T> T withContext(List<Entry> entries, Supplier<T> code) {
         var localContext = LOCAL_CONTEXT.get();
-        try {
-            LOCAL_CONTEXT.set(new Context.Child.Plain(
-                    entries,
-                    localContext == null ? GLOBAL_CONTEXT.get() : localContext
-            ));
-            return code.get();
-        } finally {
-            LOCAL_CONTEXT.set(localContext);
-        }
+        return LOCAL_CONTEXT.with(
+                new Context.Child.Plain(
+                        entries,
+                        localContext == null ? GLOBAL_CONTEXT.get() : localContext
+                ),
+                code
+        );
     }
 
     /**
@@ -253,6 +315,10 @@ public sealed interface Log extends Iterable<Log.Entry> {
     }
 
     /**
+     * Iterates over the entries of the log followed by the entries of each of its contexts, nearest
+     * first. Every entry is produced, even when a nearer one has the same key. For only the entries
+     * {@link #get(String)} would find, use {@link #flattenedEntries()}.
+     *
      * @return An Iterator over all the entries in the log, including entries in parent contexts.
      */
     @Override
@@ -263,50 +329,104 @@ public sealed interface Log extends Iterable<Log.Entry> {
 
             @Override
             public boolean hasNext() {
-                if (iter.hasNext()) {
-                    return true;
-                } else {
+                while (!iter.hasNext()) {
                     if (ctx instanceof Context.Child.Plain plainCtx) {
                         iter = plainCtx.entries().iterator();
                         ctx = plainCtx.parent();
-                        return this.hasNext();
                     } else if (ctx instanceof Context.Child.Span spanCtx) {
                         ctx = spanCtx.parent();
-                        return this.hasNext();
                     } else if (ctx instanceof Context.Global globalCtx) {
                         iter = globalCtx.entries().iterator();
                         ctx = null;
-                        return this.hasNext();
                     } else {
                         return false;
                     }
                 }
+                return true;
             }
 
             @Override
             public Entry next() {
-                if (iter.hasNext()) {
-                    return iter.next();
-                } else {
-                    if (ctx instanceof Context.Child.Plain plainCtx) {
-                        iter = plainCtx.entries().iterator();
-                        ctx = plainCtx.parent();
-                        return this.next();
-                    } else if (ctx instanceof Context.Child.Span spanCtx) {
-                        ctx = spanCtx.parent();
-                        return this.next();
-                    } else if (ctx instanceof Context.Global globalCtx) {
-                        iter = globalCtx.entries().iterator();
-                        ctx = null;
-                        return this.next();
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return iter.next();
+            }
+        };
+    }
+
+    /**
+     * The entries of the log followed by the entries of its context, keeping only the nearest entry
+     * for each key.
+     *
+     * <p>The context's entries come from {@link Context#flattenedEntries()}, and an entry in the
+     * context is skipped when the log itself has an entry with the same key. Every entry produced
+     * is the one {@link #get(String)} would find for its key.</p>
+     *
+     * @return The entries visible from this log, nearest first.
+     */
+    default Iterable<Entry> flattenedEntries() {
+        var entries = entries();
+        return () -> new Iterator<>() {
+            Iterator<Entry> iter = entries.iterator();
+            boolean inContext = false;
+            Entry next = null;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (iter.hasNext()) {
+                        var entry = iter.next();
+                        if (!inContext || !shadowed(entry.key())) {
+                            next = entry;
+                        }
+                    } else if (!inContext) {
+                        iter = context().flattenedEntries().iterator();
+                        inContext = true;
                     } else {
-                        throw new NoSuchElementException();
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private boolean shadowed(String key) {
+                // Same linear scan get() does. A log rarely has more than a handful of entries.
+                for (var entry : entries) {
+                    if (entry.key().equals(key)) {
+                        return true;
                     }
                 }
+                return false;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var entry = next;
+                next = null;
+                return entry;
             }
         };
     }
 
+    /**
+     * Looks up the value for a key, first in the entries of the log and then in its context.
+     *
+     * @param key The key to look for.
+     * @return The value of the nearest entry with that key.
+     */
+    default Optional<Entry.Value> get(String key) {
+        for (var entry : entries()) {
+            if (entry.key().equals(key)) {
+                return Optional.of(entry.value());
+            }
+        }
+        return context().lookup(key).map(Entry::value);
+    }
+
     enum Level {
         TRACE,
         DEBUG,
@@ -321,75 +441,480 @@ public sealed interface Log extends Iterable<Log.Entry> {
             return localContext == null ? GLOBAL_CONTEXT.get() : localContext;
         }
 
+        /**
+         * @return The nearest span this context is nested inside of, not counting this context itself.
+         */
         Optional<Child.Span> parentSpan();
-        default Optional<Child.Span> rootSpan() {
-            return this.parentSpan()
-                    .map(parent -> parent.rootSpan().orElse(parent));
+
+        /**
+         * @return The outermost span this context is nested inside of, not counting this context itself.
+         */
+        Optional<Child.Span> rootSpan();
+
+        /**
+         * @return How many spans there are from this context up to the global context, counting this
+         * context if it is a span.
+         */
+        int spanDepth();
+
+        /**
+         * @return Every entry visible from this context, nearest first. When a key appears
+         * more than once only the nearest entry is kept. Computed once and then cached.
+         */
+        List<Entry> flattenedEntries();
+
+        /**
+         * @param key The key to look for.
+         * @return The nearest entry with the given key anywhere in this context or its parents.
+         */
+        default Optional<Entry> lookup(String key) {
+            return Optional.ofNullable(FlattenedEntries.of(this).index().get(key));
         }
 
-        record Global(List<Entry> entries) implements Context {
+        final class Global implements Context {
+            private final List<Entry> entries;
+            private FlattenedEntries flattened;
+
             public Global(List<Entry> entries) {
-                this.entries = List.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+                this.entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+            }
+
+            public List<Entry> entries() {
+                return entries;
             }
 
             @Override
             public Optional<Child.Span> parentSpan() {
                 return Optional.empty();
             }
+
+            @Override
+            public Optional<Child.Span> rootSpan() {
+                return Optional.empty();
+            }
+
+            @Override
+            public int spanDepth() {
+                return 0;
+            }
+
+            @Override
+            public List<Entry> flattenedEntries() {
+                return flattened().entries();
+            }
+
+            FlattenedEntries flattened() {
+                // Racy single check. FlattenedEntries is immutable, so the worst case is computing it twice.
+                var flattened = this.flattened;
+                if (flattened == null) {
+                    flattened = FlattenedEntries.of(entries, null);
+                    this.flattened = flattened;
+                }
+                return flattened;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Global other && entries.equals(other.entries);
+            }
+
+            @Override
+            public int hashCode() {
+                return entries.hashCode();
+            }
+
+            @Override
+            public String toString() {
+                return "Global[entries=" + entries + "]";
+            }
         }
 
         sealed interface Child extends Context {
             Context parent();
 
-            @Override
-            default Optional<Span> parentSpan() {
-                var parent = parent();
-                if (parent instanceof Span parentSpan) {
-                    return Optional.of(parentSpan);
-                }
-                else {
-                    return parent.parentSpan();
+            /*
+             * Where the spans are only depends on the parent, so it is worked out once when a node is
+             * made. Nodes are built for every span and withContext, but asked for their spans on every log.
+             */
+            private static Optional<Span> nearestSpan(Context parent) {
+                return parent instanceof Span span ? span.self : parent.parentSpan();
+            }
+
+            private static Optional<Span> outermostSpan(Optional<Span> parentSpan) {
+                if (parentSpan.isEmpty()) {
+                    return parentSpan;
                 }
+                var rootSpan = parentSpan.get().rootSpan;
+                return rootSpan.isPresent() ? rootSpan : parentSpan;
             }
 
-            record Plain(
-                    @Override List<Entry> entries,
-                    @Override Context parent
-            ) implements Child {
+            final class Plain implements Child {
+                private final List<Entry> entries;
+                private final Context parent;
+                private final Optional<Span> parentSpan;
+                private final Optional<Span> rootSpan;
+                private FlattenedEntries flattened;
+
                 public Plain(
                         List<Entry> entries,
                         Context parent
                 ) {
-                    this.entries = List.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
+                    this.entries = Entries.copyOf(Objects.requireNonNull(entries, "entries must not be null"));
                     this.parent = Objects.requireNonNull(parent, "parent must not be null");
+                    this.parentSpan = nearestSpan(parent);
+                    this.rootSpan = outermostSpan(parentSpan);
+                }
+
+                public List<Entry> entries() {
+                    return entries;
+                }
+
+                @Override
+                public Context parent() {
+                    return parent;
+                }
+
+                @Override
+                public Optional<Span> parentSpan() {
+                    return parentSpan;
+                }
+
+                @Override
+                public Optional<Span> rootSpan() {
+                    return rootSpan;
+                }
+
+                @Override
+                public int spanDepth() {
+                    return parentSpan.isEmpty() ? 0 : parentSpan.get().spanDepth;
+                }
+
+                @Override
+                public List<Entry> flattenedEntries() {
+                    return flattened().entries();
+                }
+
+                FlattenedEntries flattened() {
+                    var flattened = this.flattened;
+                    if (flattened == null) {
+                        flattened = FlattenedEntries.of(entries, FlattenedEntries.of(parent));
+                        this.flattened = flattened;
+                    }
+                    return flattened;
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                    return o instanceof Plain other
+                            && entries.equals(other.entries)
+                            && parent.equals(other.parent);
+                }
+
+                @Override
+                public int hashCode() {
+                    return 31 * entries.hashCode() + parent.hashCode();
+                }
+
+                @Override
+                public String toString() {
+                    return "Plain[entries=" + entries + ", parent=" + parent + "]";
                 }
             }
 
-            record Span(
-                    Thread thread,
-                    Instant startedAt,
-                    Flake spanId,
-                    @Override Context parent
-            ) implements Child {
+            final class Span implements Child {
+                private final ThreadInfo thread;
+                private final long startedAtNanos;
+                private final Flake spanId;
+                private final Context parent;
+                private final Optional<Span> self;
+                private final Optional<Span> parentSpan;
+                private final Optional<Span> rootSpan;
+                private final int spanDepth;
+
+                /**
+                 * @param startedAtNanos When the span started, in nanoseconds since the epoch.
+                 */
                 public Span(
-                        Thread thread,
-                        Instant startedAt,
+                        ThreadInfo thread,
+                        long startedAtNanos,
                         Flake spanId,
                         Context parent
                 ) {
                     this.thread = Objects.requireNonNull(thread, "thread must not be null");
-                    this.startedAt = Objects.requireNonNull(startedAt, "startedAt must not be null");
+                    this.startedAtNanos = startedAtNanos;
                     this.spanId = Objects.requireNonNull(spanId, "spanId must not be null");
                     this.parent = Objects.requireNonNull(parent, "parent must not be null");
+                    this.self = Optional.of(this);
+                    this.parentSpan = nearestSpan(parent);
+                    this.rootSpan = outermostSpan(parentSpan);
+                    this.spanDepth = parentSpan.isEmpty() ? 1 : parentSpan.get().spanDepth + 1;
+                }
+
+                public Span(
+                        Thread thread,
+                        Instant startedAt,
+                        Flake spanId,
+                        Context parent
+                ) {
+                    this(
+                            ThreadInfo.of(thread),
+                            Occurrence.SpanOfTime.epochNanos(Objects.requireNonNull(startedAt, "startedAt must not be null")),
+                            spanId,
+                            parent
+                    );
+                }
+
+                public ThreadInfo thread() {
+                    return thread;
+                }
+
+                public Instant startedAt() {
+                    return Instant.ofEpochSecond(0, startedAtNanos);
                 }
+
+                /**
+                 * @return When the span started, in nanoseconds since the epoch.
+                 */
+                public long startedAtNanos() {
+                    return startedAtNanos;
+                }
+
+                public Flake spanId() {
+                    return spanId;
+                }
+
+                @Override
+                public Context parent() {
+                    return parent;
+                }
+
+                @Override
+                public Optional<Span> parentSpan() {
+                    return parentSpan;
+                }
+
+                @Override
+                public Optional<Span> rootSpan() {
+                    return rootSpan;
+                }
+
+                @Override
+                public int spanDepth() {
+                    return spanDepth;
+                }
+
+                /**
+                 * Spans have no entries of their own, so this is the same as the parent's.
+                 */
+                @Override
+                public List<Entry> flattenedEntries() {
+                    return parent.flattenedEntries();
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                    return o instanceof Span other
+                            && thread.equals(other.thread)
+                            && startedAtNanos == other.startedAtNanos
+                            && spanId.equals(other.spanId)
+                            && parent.equals(other.parent);
+                }
+
+                @Override
+                public int hashCode() {
+                    return Objects.hash(thread, startedAtNanos, spanId, parent);
+                }
+
+                @Override
+                public String toString() {
+                    return "Span[thread=" + thread
+                            + ", startedAt=" + startedAt()
+                            + ", spanId=" + spanId
+                            + ", parent=" + parent + "]";
+                }
+            }
+        }
+    }
+
+    /**
+     * The thread a log was made on.
+     *
+     * <p>Logs hold onto this instead of the {@link Thread} itself so that a queued log doesn't keep a finished
+     * thread, along with its stack and thread locals, from being collected.</p>
+     *
+     * @param id      The id of the thread.
+     * @param name    The name of the thread when the log was made.
+     * @param virtual Whether the thread is a virtual thread.
+     */
+    record ThreadInfo(long id, String name, boolean virtual) {
+        private static final MethodHandle IS_VIRTUAL;
+        private static final ThreadLocal<ThreadInfo> CURRENT = new ThreadLocal<>();
+
+        static {
+            MethodHandle isVirtual;
+            try {
+                isVirtual = MethodHandles.publicLookup()
+                        .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // Before Java 21 there are no virtual threads.
+                isVirtual = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, Thread.class);
+            }
+            IS_VIRTUAL = isVirtual;
+        }
+
+        public ThreadInfo {
+            Objects.requireNonNull(name, "name must not be null");
+        }
+
+        /**
+         * @return Info for the current thread. On platform threads, the same instance is returned until
+         * the thread is renamed.
+         */
+        public static ThreadInfo current() {
+            var thread = Thread.currentThread();
+            if (isVirtual(thread)) {
+                // Virtual threads are often short-lived and numerous, so caching would cost each of
+                // them a thread local map. Even looking in one would create it.
+                return of(thread, true);
+            }
+
+            var info = CURRENT.get();
+            // getName() hands back the thread's own string, so an identity check spots renames.
+            if (info == null || info.name != thread.getName()) {
+                info = of(thread, false);
+                try {
+                    CURRENT.set(info);
+                } catch (UnsupportedOperationException e) {
+                    // Threads can be built without support for thread locals.
+                }
+            }
+            return info;
+        }
+
+        /**
+         * @param thread The thread to describe.
+         * @return Info for the thread as it is right now.
+         */
+        public static ThreadInfo of(Thread thread) {
+            Objects.requireNonNull(thread, "thread must not be null");
+            return of(thread, isVirtual(thread));
+        }
+
+        @SuppressWarnings("deprecation")
+        private static ThreadInfo of(Thread thread, boolean virtual) {
+            return new ThreadInfo(thread.getId(), thread.getName(), virtual);
+        }
+
+        private static boolean isVirtual(Thread thread) {
+            try {
+                return (boolean) IS_VIRTUAL.invokeExact(thread);
+            } catch (java.lang.Throwable t) {
+                return false;
             }
         }
     }
 
-    record Category(String namespace, String name) {
-        public Category {
-            Objects.requireNonNull(namespace, "namespace must not be null.");
-            Objects.requireNonNull(name, "name must not be null.");
+    /**
+     * What a log is about. A namespace, usually the name of a class, and a name within it.
+     *
+     * <p>Every distinct category can be given a small integer {@link #id()}, counting up from zero, which
+     * sinks can use to keep per category state in arrays. Giving a category an id interns it, and interned
+     * categories are never forgotten. Ids are only meant for categories which are effectively static, like
+     * constants and those handed out by {@link Logger.Namespaced#category(String)}, and not for categories
+     * made from unbounded data.</p>
+     */
+    final class Category {
+        private static final ConcurrentHashMap<Category, Category> INTERNED = new ConcurrentHashMap<>();
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        private final String namespace;
+        private final String name;
+        private final int hash;
+        // One more than the id, so that zero can mean it hasn't been looked up yet.
+        private int idPlusOne;
+
+        public Category(String namespace, String name) {
+            this.namespace = Objects.requireNonNull(namespace, "namespace must not be null.");
+            this.name = Objects.requireNonNull(name, "name must not be null.");
+            this.hash = 31 * namespace.hashCode() + name.hashCode();
+        }
+
+        /**
+         * @return The canonical instance of the category, which already knows its id.
+         */
+        public static Category of(String namespace, String name) {
+            return new Category(namespace, name).intern();
+        }
+
+        public String namespace() {
+            return namespace;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return The canonical instance equal to this category.
+         */
+        public Category intern() {
+            var interned = INTERNED.get(this);
+            if (interned != null) {
+                return interned;
+            }
+            return INTERNED.computeIfAbsent(this, category -> {
+                category.idPlusOne = NEXT_ID.incrementAndGet();
+                return category;
+            });
+        }
+
+        /**
+         * Interns the category, if it isn't already, so only call this for categories which are
+         * effectively static. Code handling arbitrary categories should use {@link #isInterned()} to
+         * check first and fall back to keying by the category itself.
+         *
+         * @return A small integer which is the same for every equal category, and different for every other.
+         */
+        public int id() {
+            var idPlusOne = this.idPlusOne;
+            if (idPlusOne == 0) {
+                idPlusOne = intern().idPlusOne;
+                this.idPlusOne = idPlusOne;
+            }
+            return idPlusOne - 1;
+        }
+
+        /**
+         * @return Whether an equal category has already been interned, in which case {@link #id()} is free.
+         */
+        public boolean isInterned() {
+            if (idPlusOne != 0) {
+                return true;
+            }
+            var interned = INTERNED.get(this);
+            if (interned == null) {
+                return false;
+            }
+            this.idPlusOne = interned.idPlusOne;
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Category other
+                    && hash == other.hash
+                    && namespace.equals(other.namespace)
+                    && name.equals(other.name));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Category[namespace=" + namespace + ", name=" + name + "]";
         }
     }
 
@@ -909,12 +1434,33 @@ public sealed interface Log extends Iterable<Log.Entry> {
              * <p>When its value is requested it will be computed. If any exceptions
              * occur when realizing its Value then a Value.Throwable will be returned.</p>
              *
-             * <p>After a value is computed it is stable and will not be recomputed.</p>
+             * <p>After a value is computed it is stable and will not be recomputed. If several threads
+             * ask for the value at once, one of them computes it and the rest wait for it. Waiting
+             * parks rather than holding a monitor, so a virtual thread waiting on a value, or computing
+             * one, never pins its carrier.</p>
+             *
+             * <p>A value which is expensive to compute can be realized ahead of time somewhere other than
+             * the thread which logged it with {@link #realize(Executor)}.</p>
              */
             final class Lazy implements Value {
-                // Implementation based off of clojure's Delay + vavr's Lazy
-                private volatile Supplier<? extends Value> supplier;
-                private Value value;
+                private static final VarHandle STATE;
+
+                static {
+                    try {
+                        STATE = MethodHandles.lookup().findVarHandle(Lazy.class, "state", Object.class);
+                    } catch (ReflectiveOperationException e) {
+                        throw new ExceptionInInitializerError(e);
+                    }
+                }
+
+                private static final int SPINS = 64;
+
+                /*
+                 * Either the supplier while pending, a Computing while some thread is running the
+                 * supplier, or the realized Value. Value is sealed and none of its implementations are
+                 * suppliers, so the three can be told apart by type.
+                 */
+                private volatile Object state;
 
                 /**
                  * Constructs a Lazy value from the given supplier.
@@ -923,8 +1469,7 @@ public sealed interface Log extends Iterable<Log.Entry> {
                  */
                 public Lazy(Supplier<? extends Value> supplier) {
                     Objects.requireNonNull(supplier, "supplier must not be null");
-                    this.supplier = supplier;
-                    this.value = null;
+                    this.state = supplier;
                 }
 
                 /**
@@ -932,29 +1477,130 @@ public sealed interface Log extends Iterable<Log.Entry> {
                  * multiple threads.
                  */
                 public Value value() {
-                    if (supplier != null) {
-                        synchronized (this) {
-                            final var s = supplier;
-                            if (s != null) {
+                    if (state instanceof Value value) {
+                        return value;
+                    }
+                    return compute();
+                }
+
+                /**
+                 * @return Whether the value has already been computed.
+                 */
+                public boolean isRealized() {
+                    return state instanceof Value;
+                }
+
+                /**
+                 * Computes the value using the given executor, unless it has already been computed.
+                 *
+                 * @param executor Where to compute the value.
+                 * @return A future which completes with the value.
+                 */
+                public CompletableFuture<Value> realize(Executor executor) {
+                    Objects.requireNonNull(executor, "executor must not be null");
+                    if (state instanceof Value value) {
+                        return CompletableFuture.completedFuture(value);
+                    }
+                    return CompletableFuture.supplyAsync(this::value, executor);
+                }
+
+                private Value compute() {
+                    while (true) {
+                        var current = state;
+                        if (current instanceof Value value) {
+                            return value;
+                        } else if (current instanceof Computing computing) {
+                            if (computing.owner == Thread.currentThread()) {
+                                return new Throwable(new IllegalStateException("Lazy value depends on itself"));
+                            }
+                            computing.await(this);
+                        } else {
+                            var computing = new Computing();
+                            if (STATE.compareAndSet(this, current, computing)) {
+                                Value value;
                                 try {
-                                    this.value = Objects.requireNonNullElse(s.get(), Null.INSTANCE);
+                                    @SuppressWarnings("unchecked")
+                                    var supplier = (Supplier<? extends Value>) current;
+                                    value = Objects.requireNonNullElse(supplier.get(), Null.INSTANCE);
                                 } catch (java.lang.Throwable throwable) {
-                                    this.value = new Throwable(throwable);
+                                    value = new Throwable(throwable);
                                 }
-                                this.supplier = null;
+                                state = value;
+                                computing.release();
+                                return value;
+                            }
+                        }
+                    }
+                }
+
+                /**
+                 * Marks a value as being computed, and keeps a Treiber stack of the threads waiting for it.
+                 */
+                private static final class Computing {
+                    private static final VarHandle WAITERS;
+                    private static final Waiter RELEASED = new Waiter(null, null);
+
+                    static {
+                        try {
+                            WAITERS = MethodHandles.lookup().findVarHandle(Computing.class, "waiters", Waiter.class);
+                        } catch (ReflectiveOperationException e) {
+                            throw new ExceptionInInitializerError(e);
+                        }
+                    }
+
+                    final Thread owner = Thread.currentThread();
+                    private volatile Waiter waiters;
+
+                    private record Waiter(Thread thread, Waiter next) {
+                    }
+
+                    void await(Lazy lazy) {
+                        // Most values are cheap, so spin briefly before going to the trouble of parking.
+                        for (int i = 0; i < SPINS; i++) {
+                            if (lazy.state != this) {
+                                return;
                             }
+                            Thread.onSpinWait();
+                        }
+
+                        while (true) {
+                            var head = waiters;
+                            if (head == RELEASED) {
+                                return;
+                            }
+                            if (WAITERS.compareAndSet(this, head, new Waiter(Thread.currentThread(), head))) {
+                                break;
+                            }
+                        }
+
+                        var interrupted = false;
+                        while (lazy.state == this) {
+                            LockSupport.park(lazy);
+                            interrupted |= Thread.interrupted();
+                        }
+                        if (interrupted) {
+                            Thread.currentThread().interrupt();
                         }
                     }
 
-                    return this.value;
+                    void release() {
+                        var waiter = (Waiter) WAITERS.getAndSet(this, RELEASED);
+                        while (waiter != null) {
+                            LockSupport.unpark(waiter.thread());
+                            waiter = waiter.next();
+                        }
+                    }
                 }
 
                 @Override
                 public java.lang.String toString() {
-                    if (supplier != null) {
-                        return "Lazy[pending]";
+                    var current = state;
+                    if (current instanceof Value value) {
+                        return "Lazy[realized: value=" + value + "]";
+                    } else if (current instanceof Computing) {
+                        return "Lazy[computing]";
                     } else {
-                        return "Lazy[realized: value=" + value() + "]";
+                        return "Lazy[pending]";
                     }
                 }
             }
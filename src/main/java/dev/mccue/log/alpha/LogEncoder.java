@@ -0,0 +1,21 @@
+package dev.mccue.log.alpha;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns logs into bytes.
+ *
+ * <p>Encoders are expected to reuse their buffers, so one should not be shared between threads.</p>
+ *
+ * @see JsonLogEncoder
+ * @see BinaryLogEncoder
+ */
+@FunctionalInterface
+public interface LogEncoder {
+    /**
+     * @param log The log to encode.
+     * @return A buffer holding the encoded log between its position and limit. Only valid until the next
+     * call to this encoder.
+     */
+    ByteBuffer encode(Log log);
+}
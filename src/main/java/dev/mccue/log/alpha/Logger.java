@@ -1,8 +1,8 @@
 package dev.mccue.log.alpha;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import static dev.mccue.log.alpha.Globals.GLOBAL_CONTEXT;
@@ -20,16 +20,38 @@ public interface Logger {
      */
     void log(Log log);
 
+    /**
+     * Checks whether logs of the given level and category would be accepted.
+     *
+     * <p>All the default methods on this interface consult this before building a {@link Log},
+     * so a backend that discards most of what it is given should override it. Constructing an event
+     * captures the current context, a {@link Flake} and a timestamp, none of which is free.</p>
+     *
+     * <p>This is only a hint. Implementations of {@link Logger#log(Log)} are still free to drop
+     * logs which were reported as enabled.</p>
+     *
+     * @param level    The level of the log.
+     * @param category The category of the log.
+     * @return Whether a log with the given level and category should be constructed.
+     */
+    default boolean isEnabled(Log.Level level, Log.Category category) {
+        return true;
+    }
+
     default void event(
             Log.Level level,
             Log.Category category,
             List<Log.Entry> entries
     ) {
-        log(new Log.Event(level, category, entries));
+        if (isEnabled(level, category)) {
+            log(new Log.Event(level, category, entries));
+        }
     }
 
     default void event(Log.Level level, Log.Category category, Log.Entry... entries) {
-        event(level, category, List.of(entries));
+        if (isEnabled(level, category)) {
+            log(new Log.Event(level, category, Entries.copyOf(entries)));
+        }
     }
 
     default void trace(Log.Category category, List<Log.Entry> entries) {
@@ -75,32 +97,45 @@ public interface Logger {
         event(Log.Level.ERROR, category, entries);
     }
 
+    /**
+     * Runs the given code inside of a span.
+     *
+     * <p>If the level and category are not enabled the code is still run, but no span is
+     * pushed onto the context and no {@link Log.Span} is produced.</p>
+     */
     default <T> T span(
             Log.Level level,
             Log.Category category,
             List<Log.Entry> entries,
             Supplier<T> code
     ) {
+        if (!isEnabled(level, category)) {
+            return code.get();
+        }
+
         Log.Span.Outcome outcome = Log.Span.Outcome.Ok.INSTANCE;
-        var start = Instant.now();
+        // One monotonic reading anchors both the start time and the span's id. The duration
+        // is measured on the same clock, so it can't be thrown off by the wall clock moving.
+        var start = System.nanoTime();
+        var startedAt = NanoClock.toWallNanos(start);
+        var spanId = Flake.create(startedAt);
+        var thread = Log.ThreadInfo.current();
         var localContext = LOCAL_CONTEXT.get();
+        var context = localContext == null ? GLOBAL_CONTEXT.get() : localContext;
         try {
-            LOCAL_CONTEXT.set(new Log.Context.Child.Span(
-                    Thread.currentThread(),
-                    start,
-                    Flake.create(),
-                    localContext == null ? GLOBAL_CONTEXT.get() : localContext
-            ));
-            return code.get();
+            return LOCAL_CONTEXT.with(
+                    new Log.Context.Child.Span(thread, startedAt, spanId, context),
+                    code
+            );
         } catch (Throwable t) {
             outcome = new Log.Span.Outcome.Error(t);
             throw t;
         } finally {
-            LOCAL_CONTEXT.set(localContext);
-            var end = Instant.now();
-            var duration = Duration.between(start, end);
-            var occurrence = new Log.Occurrence.SpanOfTime(start, duration);
+            var occurrence = new Log.Occurrence.SpanOfTime(startedAt, System.nanoTime() - start);
             log(new Log.Span(
+                    context,
+                    thread,
+                    spanId,
                     outcome,
                     occurrence,
                     level,
@@ -216,10 +251,23 @@ public interface Logger {
      * <p>The most common use of this is to have a logger for a particular class.</p>
      */
     sealed interface Namespaced {
+        /**
+         * @param name The name within this logger's namespace.
+         * @return The category for the name. The same instance is returned every time.
+         */
+        Log.Category category(String name);
+
+        /**
+         * @see Logger#isEnabled(Log.Level, Log.Category)
+         */
+        boolean isEnabled(Log.Level level, String name);
+
         void event(Log.Level level, String name, List<Log.Entry> entries);
 
         default void event(Log.Level level, String name, Log.Entry... entries) {
-            event(level, name, List.of(entries));
+            if (isEnabled(level, name)) {
+                event(level, name, Entries.copyOf(entries));
+            }
         }
 
         default void trace(String name, List<Log.Entry> entries) {
@@ -358,14 +406,64 @@ public interface Logger {
     }
 }
 
-record NamespacedLogger(String namespace, Logger logger) implements Logger.Namespaced {
+final class NamespacedLogger implements Logger.Namespaced {
+    private final String namespace;
+    private final Logger logger;
+    // Names are almost always literals in code, so this stays small.
+    private final ConcurrentHashMap<String, Log.Category> categories;
+
+    NamespacedLogger(String namespace, Logger logger) {
+        this.namespace = Objects.requireNonNull(namespace, "namespace must not be null");
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        this.categories = new ConcurrentHashMap<>();
+    }
+
+    String namespace() {
+        return namespace;
+    }
+
+    Logger logger() {
+        return logger;
+    }
+
+    @Override
+    public Log.Category category(String name) {
+        var category = categories.get(name);
+        if (category == null) {
+            category = categories.computeIfAbsent(name, __ -> Log.Category.of(namespace, name));
+        }
+        return category;
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, String name) {
+        return logger.isEnabled(level, category(name));
+    }
+
     @Override
     public void event(Log.Level level, String name, List<Log.Entry> entries) {
-        logger.event(level, new Log.Category(namespace, name), entries);
+        logger.event(level, category(name), entries);
     }
 
     @Override
     public <T> T span(Log.Level level, String name, List<Log.Entry> entries, Supplier<T> code) {
-        return logger.span(level, new Log.Category(namespace, name), entries, code);
+        return logger.span(level, category(name), entries, code);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NamespacedLogger other
+                && namespace.equals(other.namespace)
+                && logger.equals(other.logger);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * namespace.hashCode() + logger.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "NamespacedLogger[namespace=" + namespace + ", logger=" + logger + "]";
     }
 }
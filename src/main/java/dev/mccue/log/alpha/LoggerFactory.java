@@ -1,44 +1,43 @@
 package dev.mccue.log.alpha;
 
-import java.util.ArrayList;
-import java.util.ServiceLoader;
-import java.util.concurrent.ThreadLocalRandom;
-
+/**
+ * Creates the logger used by {@link LoggerFactory#getLogger()}, found with a {@link java.util.ServiceLoader}.
+ *
+ * <p>The lookup happens once, the first time a logger is asked for. If more than one factory is
+ * provided, the one whose class name sorts first is used.</p>
+ */
 @FunctionalInterface
 public interface LoggerFactory {
+    /**
+     * @return The factory picked from the available services. Always the same instance.
+     */
     static LoggerFactory create() {
-        var loggerFactories = ServiceLoader.load(LoggerFactory.class).iterator();
-        if (!loggerFactories.hasNext()) {
-            System.err.println("No logger factory supplied. Falling back to no-op logger");
-            return () -> (__) -> {
-            };
-        } else {
-            var service = loggerFactories.next();
-            if (loggerFactories.hasNext()) {
-                var services = new ArrayList<LoggerFactory>();
-                services.add(service);
-                while (loggerFactories.hasNext()) {
-                    services.add(loggerFactories.next());
-                }
-
-                System.err.printf("Multiple logger factories supplied: %s. Picking one at random.%n", services);
-                return services.get(ThreadLocalRandom.current().nextInt(0, services.size()));
-            } else {
-                return service;
-            }
-        }
+        return LoggerRegistry.FACTORY;
     }
 
+    /**
+     * @return A logger made by the factory. {@link #createLogger()} is called every time.
+     */
     static Logger getLogger() {
-        return create().createLogger();
+        return LoggerRegistry.FACTORY.createLogger();
     }
 
+    /**
+     * @param namespace The namespace for the logger.
+     * @return A logger for the namespace. Always the same instance for the same namespace.
+     */
     static Logger.Namespaced getLogger(String namespace) {
-        return getLogger().namespaced(namespace);
+        return LoggerRegistry.namespaced(namespace);
     }
 
+    /**
+     * @param klass The class to use the canonical name of as the namespace. Classes without one,
+     *              like anonymous classes, use their binary name instead.
+     * @return A logger for the class. Always the same instance for the same namespace.
+     */
     static Logger.Namespaced getLogger(Class<?> klass) {
-        return getLogger().namespaced(klass.getCanonicalName());
+        var namespace = klass.getCanonicalName();
+        return getLogger(namespace == null ? klass.getName() : namespace);
     }
 
     Logger createLogger();
@@ -0,0 +1,45 @@
+package dev.mccue.log.alpha;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Holds what LoggerFactory resolves. Kept in its own class so the service lookup happens the
+ * first time a logger is asked for, and then never again. Namespaced loggers are made from a
+ * logger created for them the first time each namespace is asked for.
+ */
+final class LoggerRegistry {
+    private LoggerRegistry() {
+    }
+
+    static final LoggerFactory FACTORY = load();
+
+    static final ConcurrentHashMap<String, Logger.Namespaced> NAMESPACED = new ConcurrentHashMap<>();
+
+    static Logger.Namespaced namespaced(String namespace) {
+        var logger = NAMESPACED.get(namespace);
+        if (logger == null) {
+            logger = NAMESPACED.computeIfAbsent(namespace, __ -> FACTORY.createLogger().namespaced(namespace));
+        }
+        return logger;
+    }
+
+    private static LoggerFactory load() {
+        var services = new ArrayList<LoggerFactory>();
+        ServiceLoader.load(LoggerFactory.class).forEach(services::add);
+        if (services.isEmpty()) {
+            System.err.println("No logger factory supplied. Falling back to no-op logger");
+            return () -> (__) -> {
+            };
+        } else if (services.size() == 1) {
+            return services.get(0);
+        } else {
+            // The order ServiceLoader finds providers in depends on the class path, so pick by name.
+            services.sort(Comparator.comparing(service -> service.getClass().getName()));
+            System.err.printf("Multiple logger factories supplied: %s. Using %s.%n", services, services.get(0));
+            return services.get(0);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package dev.mccue.log.alpha;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A logger which appends encoded logs to memory mapped files.
+ *
+ * <p>Logs are written into a segment file which is mapped into memory, so appending a log is a copy
+ * rather than a system call. A background thread flushes the current segment to disk periodically,
+ * maps the next segment before it is needed, and trims each segment to the bytes actually
+ * written once it is rolled over.</p>
+ *
+ * <p>Logging never waits on the file system. If the next segment isn't ready when the current one
+ * fills up, logs are dropped until it is. If it can't be created, that is reported to
+ * {@link System#err} and creating it is retried every second, with logs going to the current
+ * segment while there is room and dropped after that.</p>
+ *
+ * <p>Segments are named {@code <prefix>-<flake>.log}, so sorting their names sorts them by when they
+ * were created. If the process dies before a segment is rolled, the end of that segment will be
+ * padded with zero bytes.</p>
+ *
+ * {@snippet :
+ * var logger = new MappedFileLogger(new MappedFileLogger.Options(Path.of("logs")));
+ * Runtime.getRuntime().addShutdownHook(new Thread(logger::close));
+ * }
+ *
+ * @see MappedFileLoggerFactory
+ */
+public final class MappedFileLogger implements Logger, AutoCloseable {
+    private static final int PAGE_SIZE = 4096;
+    private static final long RETRY_SECONDS = 1;
+
+    private final Options options;
+    private final EncoderPool encoders;
+    private final ScheduledExecutorService background;
+    private final ReentrantLock lock;
+
+    private volatile Segment current;
+    private CompletableFuture<Segment> next;
+    private boolean closed;
+    // Guarded by the lock. Set once preparing a segment has failed, until one succeeds.
+    private boolean failing;
+    private long dropped;
+
+    /**
+     * @param directory    The directory to put segment files in. Will be created if it does not exist.
+     * @param prefix       The prefix for the names of segment files.
+     * @param segmentSize  The size of each segment in bytes. A log which does not fit in a whole segment is dropped.
+     * @param rollInterval How long to write to a segment before moving on to the next, even if it isn't full.
+     * @param syncInterval How often to flush the current segment to disk.
+     * @param encoder      Creates the encoders used for logs. A few are kept and shared between threads.
+     */
+    public record Options(
+            Path directory,
+            String prefix,
+            long segmentSize,
+            Duration rollInterval,
+            Duration syncInterval,
+            Supplier<? extends LogEncoder> encoder
+    ) {
+        public Options {
+            Objects.requireNonNull(directory, "directory must not be null");
+            Objects.requireNonNull(prefix, "prefix must not be null");
+            Objects.requireNonNull(rollInterval, "rollInterval must not be null");
+            Objects.requireNonNull(syncInterval, "syncInterval must not be null");
+            Objects.requireNonNull(encoder, "encoder must not be null");
+            if (segmentSize < PAGE_SIZE || segmentSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segmentSize must be between " + PAGE_SIZE + " and " + Integer.MAX_VALUE);
+            }
+            if (rollInterval.isNegative() || rollInterval.isZero()) {
+                throw new IllegalArgumentException("rollInterval must be positive");
+            }
+            if (syncInterval.isNegative() || syncInterval.isZero()) {
+                throw new IllegalArgumentException("syncInterval must be positive");
+            }
+        }
+
+        /**
+         * Options for 64MiB segments of JSON which roll over every hour and are flushed every second.
+         *
+         * @param directory The directory to put segment files in.
+         */
+        public Options(Path directory) {
+            this(directory, "log", 64 * 1024 * 1024, Duration.ofHours(1), Duration.ofSeconds(1), JsonLogEncoder::new);
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final long openedAt;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @param options How to lay out and write segments.
+     * @throws UncheckedIOException If the first segment cannot be created.
+     */
+    public MappedFileLogger(Options options) {
+        this.options = Objects.requireNonNull(options, "options must not be null");
+        this.encoders = new EncoderPool(options.encoder());
+        this.lock = new ReentrantLock();
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "dev.mccue.log.alpha.MappedFileLogger");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.createDirectories(options.directory());
+            this.current = openSegment();
+        } catch (IOException e) {
+            background.shutdownNow();
+            throw new UncheckedIOException(e);
+        }
+        this.next = CompletableFuture.supplyAsync(this::prepareSegment, background);
+
+        var syncMillis = options.syncInterval().toMillis();
+        background.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void log(Log log) {
+        var encoder = encoders.acquire();
+        try {
+            append(log, encoder.encode(log));
+        } finally {
+            encoders.release(encoder);
+        }
+    }
+
+    private void append(Log log, ByteBuffer encoded) {
+        var length = encoded.remaining();
+        if (length > options.segmentSize()) {
+            System.err.printf("Dropping log of %d bytes, which is larger than a segment: %s%n", length, log);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            var segment = current;
+            if (segment.buffer.remaining() < length
+                    || System.nanoTime() - segment.openedAt >= options.rollInterval().toNanos()) {
+                segment = roll();
+            }
+            if (segment.buffer.remaining() < length) {
+                dropped++;
+                return;
+            }
+            segment.buffer.put(encoded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Swaps to the next segment if it is ready, and otherwise stays on the current one.
+     * Must be called while holding the lock.
+     */
+    private Segment roll() {
+        if (!next.isDone()) {
+            return current;
+        }
+
+        Segment segment;
+        try {
+            segment = next.getNow(null);
+        } catch (RuntimeException e) {
+            if (!failing) {
+                failing = true;
+                System.err.println("Failed to create the next log segment. Retrying every "
+                                   + RETRY_SECONDS + "s, dropping logs once the current segment is full.");
+                e.printStackTrace();
+            }
+            next = CompletableFuture.supplyAsync(
+                    this::prepareSegment,
+                    CompletableFuture.delayedExecutor(RETRY_SECONDS, TimeUnit.SECONDS, background)
+            );
+            return current;
+        }
+
+        if (failing || dropped > 0) {
+            System.err.printf("Resumed writing log segments after dropping %d logs.%n", dropped);
+            failing = false;
+            dropped = 0;
+        }
+
+        var retired = current;
+        current = segment;
+        next = CompletableFuture.supplyAsync(this::prepareSegment, background);
+        background.execute(() -> retire(retired));
+        return segment;
+    }
+
+    private Segment prepareSegment() {
+        try {
+            var segment = openSegment();
+            // Touch every page now so the first write to each doesn't take a page fault.
+            for (int i = 0; i < segment.buffer.capacity(); i += PAGE_SIZE) {
+                segment.buffer.put(i, (byte) 0);
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        var path = options.directory().resolve(options.prefix() + "-" + Flake.create() + ".log");
+        var channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        try {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, options.segmentSize());
+            return new Segment(path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void retire(Segment segment) {
+        try {
+            segment.buffer.force();
+            segment.channel.truncate(segment.buffer.position());
+            segment.channel.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to finish log segment " + segment.path);
+            e.printStackTrace();
+        }
+    }
+
+    private void sync() {
+        try {
+            current.buffer.force();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush log segment " + current.path);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes and trims the current segment and stops the background thread.
+     * Logs which arrive after this are dropped.
+     */
+    @Override
+    public void close() {
+        Segment retired;
+        CompletableFuture<Segment> unused;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            retired = current;
+            unused = next;
+        } finally {
+            lock.unlock();
+        }
+
+        unused.thenAccept(segment -> {
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                System.err.println("Failed to remove unused log segment " + segment.path);
+                e.printStackTrace();
+            }
+        });
+        background.execute(() -> retire(retired));
+        background.shutdown();
+        var interrupted = false;
+        while (!background.isTerminated()) {
+            try {
+                background.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFileLogger[options=" + options + "]";
+    }
+}
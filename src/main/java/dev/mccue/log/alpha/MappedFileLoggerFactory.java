@@ -0,0 +1,70 @@
+package dev.mccue.log.alpha;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * A {@link LoggerFactory} which writes logs to memory mapped files with a {@link MappedFileLogger}.
+ *
+ * <p>This factory is not registered as a service by this library, since a module can only provide
+ * services it contains. To use it, list {@code dev.mccue.log.alpha.MappedFileLoggerFactory} in a
+ * {@code META-INF/services/dev.mccue.log.alpha.LoggerFactory} file on the class path.</p>
+ *
+ * <p>Every logger it creates shares the same files. The files are configured with system properties,
+ * read when the first logger is created.</p>
+ *
+ * <ul>
+ *     <li>{@code dev.mccue.log.alpha.mapped.directory} - where to write segments. Defaults to {@code logs}.</li>
+ *     <li>{@code dev.mccue.log.alpha.mapped.prefix} - the prefix of segment names. Defaults to {@code log}.</li>
+ *     <li>{@code dev.mccue.log.alpha.mapped.segmentSize} - the size of a segment in bytes. Defaults to 64MiB.</li>
+ *     <li>{@code dev.mccue.log.alpha.mapped.rollInterval} - an ISO-8601 duration. Defaults to {@code PT1H}.</li>
+ *     <li>{@code dev.mccue.log.alpha.mapped.syncInterval} - an ISO-8601 duration. Defaults to {@code PT1S}.</li>
+ *     <li>{@code dev.mccue.log.alpha.mapped.format} - {@code json} or {@code binary}. Defaults to {@code json}.</li>
+ * </ul>
+ *
+ * <p>The files are flushed and closed by a shutdown hook.</p>
+ */
+public final class MappedFileLoggerFactory implements LoggerFactory {
+    private static final String PREFIX = "dev.mccue.log.alpha.mapped.";
+
+    private static final class Holder {
+        static final MappedFileLogger LOGGER;
+
+        static {
+            LOGGER = new MappedFileLogger(options());
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(LOGGER::close, "dev.mccue.log.alpha.MappedFileLoggerFactory")
+            );
+        }
+    }
+
+    public MappedFileLoggerFactory() {
+    }
+
+    static MappedFileLogger.Options options() {
+        var format = System.getProperty(PREFIX + "format", "json");
+        Supplier<? extends LogEncoder> encoder = switch (format) {
+            case "json" -> JsonLogEncoder::new;
+            case "binary" -> BinaryLogEncoder::new;
+            default -> {
+                System.err.printf("Unknown value for %sformat: %s. Falling back to json.%n", PREFIX, format);
+                yield JsonLogEncoder::new;
+            }
+        };
+
+        return new MappedFileLogger.Options(
+                Path.of(System.getProperty(PREFIX + "directory", "logs")),
+                System.getProperty(PREFIX + "prefix", "log"),
+                Long.parseLong(System.getProperty(PREFIX + "segmentSize", String.valueOf(64 * 1024 * 1024))),
+                Duration.parse(System.getProperty(PREFIX + "rollInterval", "PT1H")),
+                Duration.parse(System.getProperty(PREFIX + "syncInterval", "PT1S")),
+                encoder
+        );
+    }
+
+    @Override
+    public Logger createLogger() {
+        return Holder.LOGGER;
+    }
+}
@@ -57,7 +57,14 @@ final class NanoClock {
     }
 
     public static long currentTimeNanos() {
-        return _clock.tw0 + (System.nanoTime() - _clock.tm0);
+        return toWallNanos(System.nanoTime());
+    }
+
+    /**
+     * Converts a reading of System.nanoTime() to estimated nanoseconds since the epoch.
+     */
+    static long toWallNanos(long nanoTime) {
+        return _clock.tw0 + (nanoTime - _clock.tm0);
     }
 
     public static long currentTimeMicros() {
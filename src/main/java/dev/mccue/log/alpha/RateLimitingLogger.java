@@ -0,0 +1,356 @@
+package dev.mccue.log.alpha;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A logger which limits how often logs of each category are passed along to another logger.
+ *
+ * <p>Limits are configured by a list of {@link Rule}s. The first rule which matches the namespace
+ * and level of a log decides its {@link Policy}, and each category gets its own independent
+ * instance of that policy. Logs that no rule matches are always passed along.</p>
+ *
+ * {@snippet :
+ * var logger = new RateLimitingLogger(LoggerFactory.getLogger(), List.of(
+ *         new RateLimitingLogger.Rule("com.example.hot", Log.Level.INFO, new RateLimitingLogger.Policy.OneIn(100)),
+ *         new RateLimitingLogger.Rule("", Log.Level.WARN, new RateLimitingLogger.Policy.TokenBucket(50, Duration.ofSeconds(1)))
+ * ));
+ * }
+ *
+ * <p>Events and spans are checked before they are constructed, so a suppressed log costs a map
+ * lookup and, at most, a single atomic operation. Counters are per category and the count of
+ * suppressed logs is striped, so threads logging different categories never touch the same memory.</p>
+ *
+ * <p>The number of logs suppressed for each category is periodically reported to the wrapped
+ * logger as a {@link Log.Level#WARN} event with the category {@code dev.mccue.log.alpha/suppressed}.</p>
+ */
+public final class RateLimitingLogger implements Logger, AutoCloseable {
+    static final Log.Category SUPPRESSED = new Log.Category("dev.mccue.log.alpha", "suppressed");
+
+    private static final Duration DEFAULT_REPORT_INTERVAL = Duration.ofMinutes(1);
+    private static final Log.Level[] LEVELS = Log.Level.values();
+
+    private final Logger logger;
+    private final List<Rule> rules;
+    private final ConcurrentHashMap<Log.Category, Limiter[]> limiters;
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * How often logs should be let through.
+     */
+    public sealed interface Policy {
+        /**
+         * Let through at most {@code permits} logs in any window of length {@code period}.
+         *
+         * <p>Implemented as a generic cell rate algorithm, so logs are let through as long as
+         * they don't arrive faster than the given rate, with bursts of up to {@code permits}
+         * allowed after a quiet period.</p>
+         */
+        record TokenBucket(long permits, Duration period) implements Policy {
+            public TokenBucket {
+                Objects.requireNonNull(period, "period must not be null");
+                if (permits <= 0) {
+                    throw new IllegalArgumentException("permits must be positive");
+                }
+                if (period.isNegative() || period.toNanos() < permits) {
+                    throw new IllegalArgumentException("period must be at least one nanosecond per permit");
+                }
+            }
+        }
+
+        /**
+         * Let through exactly one out of every {@code n} logs.
+         */
+        record OneIn(long n) implements Policy {
+            public OneIn {
+                if (n <= 0) {
+                    throw new IllegalArgumentException("n must be positive");
+                }
+            }
+        }
+
+        /**
+         * Let through each log with the given probability.
+         */
+        record Probability(double probability) implements Policy {
+            public Probability {
+                if (!(probability >= 0.0 && probability <= 1.0)) {
+                    throw new IllegalArgumentException("probability must be between 0 and 1");
+                }
+            }
+        }
+
+        /**
+         * Let through every log. Useful for exempting a namespace from a broader rule.
+         */
+        enum Unlimited implements Policy {
+            INSTANCE
+        }
+    }
+
+    /**
+     * Applies a policy to logs in a namespace.
+     *
+     * @param namespace The namespace the rule applies to. Also matches any namespace which starts with
+     *                  this followed by a {@code .}. An empty namespace matches every log.
+     * @param level     The most severe level the rule applies to. Logs more severe than this are not affected.
+     * @param policy    How often to let logs through.
+     */
+    public record Rule(String namespace, Log.Level level, Policy policy) {
+        public Rule {
+            Objects.requireNonNull(namespace, "namespace must not be null");
+            Objects.requireNonNull(level, "level must not be null");
+            Objects.requireNonNull(policy, "policy must not be null");
+        }
+
+        boolean matches(Log.Level level, Log.Category category) {
+            if (level.compareTo(this.level) > 0) {
+                return false;
+            }
+            var namespace = category.namespace();
+            return this.namespace.isEmpty()
+                   || namespace.equals(this.namespace)
+                   || (namespace.startsWith(this.namespace) && namespace.charAt(this.namespace.length()) == '.');
+        }
+    }
+
+    /**
+     * Creates a rate limiting logger which reports suppressed logs every minute.
+     *
+     * @param logger The logger to pass logs along to.
+     * @param rules  The rules to apply, in order of precedence.
+     */
+    public RateLimitingLogger(Logger logger, List<Rule> rules) {
+        this(logger, rules, DEFAULT_REPORT_INTERVAL);
+    }
+
+    /**
+     * @param logger         The logger to pass logs along to.
+     * @param rules          The rules to apply, in order of precedence.
+     * @param reportInterval How often to report suppressed logs.
+     */
+    public RateLimitingLogger(Logger logger, List<Rule> rules, Duration reportInterval) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        this.rules = List.copyOf(Objects.requireNonNull(rules, "rules must not be null"));
+        Objects.requireNonNull(reportInterval, "reportInterval must not be null");
+        if (reportInterval.isNegative() || reportInterval.isZero()) {
+            throw new IllegalArgumentException("reportInterval must be positive");
+        }
+
+        this.limiters = new ConcurrentHashMap<>();
+        this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "dev.mccue.log.alpha.RateLimitingLogger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var reportMillis = reportInterval.toMillis();
+        this.reporter.scheduleAtFixedRate(this::report, reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean permit(Log.Level level, Log.Category category) {
+        var forCategory = limiters.get(category);
+        if (forCategory == null) {
+            forCategory = limiters.computeIfAbsent(category, this::resolve);
+        }
+
+        var limiter = forCategory[level.ordinal()];
+        if (limiter == null || limiter.permit()) {
+            return true;
+        } else {
+            limiter.suppressed.increment();
+            return false;
+        }
+    }
+
+    private Limiter[] resolve(Log.Category category) {
+        var forCategory = new Limiter[LEVELS.length];
+        for (var level : LEVELS) {
+            for (var rule : rules) {
+                if (rule.matches(level, category)) {
+                    forCategory[level.ordinal()] = Limiter.of(rule.policy());
+                    break;
+                }
+            }
+        }
+        return forCategory;
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        return logger.isEnabled(level, category);
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, List<Log.Entry> entries) {
+        if (logger.isEnabled(level, category) && permit(level, category)) {
+            logger.log(new Log.Event(level, category, entries));
+        }
+    }
+
+    @Override
+    public void event(Log.Level level, Log.Category category, Log.Entry... entries) {
+        if (logger.isEnabled(level, category) && permit(level, category)) {
+            logger.log(new Log.Event(level, category, Entries.copyOf(entries)));
+        }
+    }
+
+    /**
+     * Runs the code inside a span if the span is let through, and without one otherwise.
+     */
+    @Override
+    public <T> T span(Log.Level level, Log.Category category, List<Log.Entry> entries, Supplier<T> code) {
+        if (logger.isEnabled(level, category) && permit(level, category)) {
+            return logger.span(level, category, entries, code);
+        } else {
+            return code.get();
+        }
+    }
+
+    /**
+     * Passes along logs which were constructed elsewhere, subject to the same limits.
+     */
+    @Override
+    public void log(Log log) {
+        if (logger.isEnabled(log.level(), log.category()) && permit(log.level(), log.category())) {
+            logger.log(log);
+        }
+    }
+
+    private void report() {
+        try {
+            limiters.forEach((category, forCategory) -> {
+                for (var level : LEVELS) {
+                    var limiter = forCategory[level.ordinal()];
+                    if (limiter == null) {
+                        continue;
+                    }
+                    var suppressed = limiter.suppressed.sumThenReset();
+                    if (suppressed > 0) {
+                        logger.log(new Log.Event(Log.Level.WARN, SUPPRESSED, List.of(
+                                Log.Entry.of("namespace", category.namespace()),
+                                Log.Entry.of("name", category.name()),
+                                Log.Entry.of("level", level.name()),
+                                Log.Entry.of("suppressed", suppressed)
+                        )));
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to report suppressed logs");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the periodic report and reports anything suppressed since the last one.
+     *
+     * <p>Waits for a report which is already running to finish first, so nothing is reported twice.</p>
+     */
+    @Override
+    public void close() {
+        reporter.shutdown();
+        var interrupted = false;
+        while (true) {
+            try {
+                if (reporter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitingLogger[logger=" + logger + ", rules=" + rules + "]";
+    }
+
+    private abstract static sealed class Limiter {
+        final LongAdder suppressed = new LongAdder();
+
+        abstract boolean permit();
+
+        static Limiter of(Policy policy) {
+            if (policy instanceof Policy.TokenBucket tokenBucket) {
+                return new Gcra(tokenBucket);
+            } else if (policy instanceof Policy.OneIn oneIn) {
+                return new Counting(oneIn.n());
+            } else if (policy instanceof Policy.Probability probability) {
+                return new Sampling(probability.probability());
+            } else {
+                return null;
+            }
+        }
+    }
+
+    private static final class Gcra extends Limiter {
+        private final long emissionInterval;
+        private final long limit;
+        // The theoretical arrival time of the next log, on the System.nanoTime() clock.
+        private final AtomicLong theoreticalArrival;
+
+        Gcra(Policy.TokenBucket policy) {
+            var period = policy.period().toNanos();
+            this.emissionInterval = period / policy.permits();
+            this.limit = period;
+            this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        }
+
+        @Override
+        boolean permit() {
+            var now = System.nanoTime();
+            while (true) {
+                var arrival = theoreticalArrival.get();
+                var next = (arrival - now > 0 ? arrival : now) + emissionInterval;
+                if (next - now > limit) {
+                    // Denying doesn't write, so a flood of suppressed logs stays read only.
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Counting extends Limiter {
+        private final long n;
+        private final AtomicLong count = new AtomicLong();
+
+        Counting(long n) {
+            this.n = n;
+        }
+
+        @Override
+        boolean permit() {
+            return count.getAndIncrement() % n == 0;
+        }
+    }
+
+    private static final class Sampling extends Limiter {
+        private final double probability;
+
+        Sampling(double probability) {
+            this.probability = probability;
+        }
+
+        @Override
+        boolean permit() {
+            return ThreadLocalRandom.current().nextDouble() < probability;
+        }
+    }
+}
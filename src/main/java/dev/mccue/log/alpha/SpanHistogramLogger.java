@@ -0,0 +1,186 @@
+package dev.mccue.log.alpha;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A logger which aggregates the durations of spans into histograms instead of passing each one along.
+ *
+ * <p>For categories selected by the given predicate, every {@link Log.Span} is recorded into a
+ * histogram for its category and outcome and then discarded. Periodically, a summary event is
+ * passed along for every histogram which recorded anything, with the same level and category as
+ * the spans and the entries</p>
+ *
+ * <ul>
+ *     <li>{@code outcome} - either {@code ok} or {@code error}.</li>
+ *     <li>{@code count} - the number of spans recorded.</li>
+ *     <li>{@code p50}, {@code p99}, {@code p999} and {@code max} - durations, accurate to within about 6%.</li>
+ *     <li>{@code interval} - the time covered by the summary.</li>
+ * </ul>
+ *
+ * <p>Spans in those categories made with {@link #span(Log.Level, Log.Category, List, Supplier)} are
+ * only timed, without building a {@link Log.Span} or a context for the code to run in. Logs made
+ * inside them are not nested under them.</p>
+ *
+ * <p>Everything else is passed along untouched.</p>
+ *
+ * {@snippet :
+ * var logger = new SpanHistogramLogger(
+ *         LoggerFactory.getLogger(),
+ *         category -> category.namespace().startsWith("com.example.rpc"),
+ *         Duration.ofSeconds(10)
+ * );
+ * }
+ */
+public final class SpanHistogramLogger implements Logger, AutoCloseable {
+    private static final Histograms NOT_AGGREGATED = new Histograms();
+
+    private final Logger logger;
+    private final Predicate<Log.Category> aggregate;
+    private final Duration interval;
+    private final ConcurrentHashMap<Log.Category, Histograms> histograms;
+    private final ScheduledExecutorService reporter;
+
+    private static final class Histograms {
+        final LatencyHistogram ok = new LatencyHistogram();
+        final LatencyHistogram error = new LatencyHistogram();
+        // The level of the most recent span, used for the summaries.
+        volatile Log.Level level = Log.Level.INFO;
+
+        void record(Log.Level level, boolean error, long nanos) {
+            (error ? this.error : ok).record(nanos);
+            if (this.level != level) {
+                this.level = level;
+            }
+        }
+    }
+
+    /**
+     * @param logger    The logger to pass logs and summaries along to.
+     * @param aggregate Which categories of spans to aggregate. Only called once per category.
+     * @param interval  How often to pass along summaries.
+     */
+    public SpanHistogramLogger(Logger logger, Predicate<Log.Category> aggregate, Duration interval) {
+        this.logger = Objects.requireNonNull(logger, "logger must not be null");
+        this.aggregate = Objects.requireNonNull(aggregate, "aggregate must not be null");
+        this.interval = Objects.requireNonNull(interval, "interval must not be null");
+        if (interval.toMillis() <= 0) {
+            throw new IllegalArgumentException("interval must be at least a millisecond");
+        }
+
+        this.histograms = new ConcurrentHashMap<>();
+        this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "dev.mccue.log.alpha.SpanHistogramLogger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var intervalMillis = interval.toMillis();
+        this.reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isEnabled(Log.Level level, Log.Category category) {
+        return logger.isEnabled(level, category);
+    }
+
+    @Override
+    public <T> T span(Log.Level level, Log.Category category, List<Log.Entry> entries, Supplier<T> code) {
+        var forCategory = histograms(category);
+        if (forCategory == NOT_AGGREGATED) {
+            return logger.span(level, category, entries, code);
+        }
+        if (!logger.isEnabled(level, category)) {
+            return code.get();
+        }
+
+        var error = false;
+        var start = System.nanoTime();
+        try {
+            return code.get();
+        } catch (Throwable t) {
+            error = true;
+            throw t;
+        } finally {
+            forCategory.record(level, error, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void log(Log log) {
+        if (log instanceof Log.Span span) {
+            var forCategory = histograms(span.category());
+            if (forCategory != NOT_AGGREGATED) {
+                forCategory.record(
+                        span.level(),
+                        span.outcome() instanceof Log.Span.Outcome.Error,
+                        span.occurrence().lastedNanos()
+                );
+                return;
+            }
+        }
+
+        logger.log(log);
+    }
+
+    private Histograms histograms(Log.Category category) {
+        var forCategory = histograms.get(category);
+        if (forCategory == null) {
+            forCategory = histograms.computeIfAbsent(
+                    category,
+                    __ -> aggregate.test(category) ? new Histograms() : NOT_AGGREGATED
+            );
+        }
+        return forCategory;
+    }
+
+    private void report() {
+        try {
+            histograms.forEach((category, forCategory) -> {
+                if (forCategory != NOT_AGGREGATED) {
+                    report(category, forCategory.level, "ok", forCategory.ok.snapshotAndReset());
+                    report(category, forCategory.level, "error", forCategory.error.snapshotAndReset());
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to report span histograms");
+            e.printStackTrace();
+        }
+    }
+
+    private void report(Log.Category category, Log.Level level, String outcome, LatencyHistogram.Snapshot snapshot) {
+        if (snapshot.count() == 0) {
+            return;
+        }
+
+        logger.log(new Log.Event(level, category, List.of(
+                Log.Entry.of("outcome", outcome),
+                Log.Entry.of("count", snapshot.count()),
+                Log.Entry.of("p50", Duration.ofNanos(snapshot.valueAt(0.5))),
+                Log.Entry.of("p99", Duration.ofNanos(snapshot.valueAt(0.99))),
+                Log.Entry.of("p999", Duration.ofNanos(snapshot.valueAt(0.999))),
+                Log.Entry.of("max", Duration.ofNanos(snapshot.max())),
+                Log.Entry.of("interval", interval)
+        )));
+    }
+
+    /**
+     * Stops the periodic summaries and passes along a final one for anything recorded since the last.
+     */
+    @Override
+    public void close() {
+        reporter.shutdownNow();
+        report();
+    }
+
+    @Override
+    public String toString() {
+        return "SpanHistogramLogger[logger=" + logger + ", interval=" + interval + "]";
+    }
+}
@@ -0,0 +1,343 @@
+package dev.mccue.log.alpha;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A logger which assembles spans into trees, one for each root span.
+ *
+ * <p>Every span and event logged inside of a span belongs to the trace of the outermost span
+ * in its context. They are held until the root span itself arrives, which happens last since
+ * a span is only logged once all the code inside of it has finished. At that point the trace is
+ * assembled and handed to the callback.</p>
+ *
+ * {@snippet :
+ * var assembler = new TraceAssembler(trace -> {
+ *     for (var node : trace.criticalPath()) {
+ *         System.out.println(node.span().category() + " " + Duration.ofNanos(node.selfTimeNanos()));
+ *     }
+ * });
+ * }
+ *
+ * <p>Memory is bounded. Traces whose root hasn't arrived within the timeout, and the oldest traces
+ * once too many are pending, are dropped. So are spans and events past the limit for a single trace.
+ * Spans whose parent never arrived are attached directly to the root. Events outside of any span
+ * are ignored.</p>
+ */
+public final class TraceAssembler implements Logger, AutoCloseable {
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+    private static final int DEFAULT_MAX_PENDING_TRACES = 10_000;
+    private static final int DEFAULT_MAX_LOGS_PER_TRACE = 1_000;
+
+    private final Consumer<Trace> onComplete;
+    private final long timeout;
+    private final int maxPendingTraces;
+    private final int maxLogsPerTrace;
+
+    private final ReentrantLock lock;
+    // Guarded by the lock. Insertion order is arrival order, so the eldest is always first.
+    private final LinkedHashMap<Flake, Pending> pending;
+    private long dropped;
+
+    /**
+     * A completed trace.
+     *
+     * @param root         The root span and everything beneath it.
+     * @param criticalPath The spans which determined how long the trace took, in the order they started.
+     * @param dropped      How many spans and events were dropped for exceeding the per trace limit.
+     */
+    public record Trace(Node root, List<Node> criticalPath, int dropped) {
+        public Trace {
+            Objects.requireNonNull(root, "root must not be null");
+            criticalPath = List.copyOf(Objects.requireNonNull(criticalPath, "criticalPath must not be null"));
+        }
+
+        /**
+         * @return The id of the root span, which identifies the trace.
+         */
+        public Flake traceId() {
+            return root.span().flake();
+        }
+    }
+
+    /**
+     * A span within a trace.
+     *
+     * @param span          The span.
+     * @param children      The spans started directly within it, in the order they started.
+     * @param events        The events logged directly within it, in the order they were logged.
+     * @param selfTimeNanos How long the span lasted while none of its children were running.
+     */
+    public record Node(Log.Span span, List<Node> children, List<Log.Event> events, long selfTimeNanos) {
+        public Node {
+            Objects.requireNonNull(span, "span must not be null");
+            children = List.copyOf(Objects.requireNonNull(children, "children must not be null"));
+            events = List.copyOf(Objects.requireNonNull(events, "events must not be null"));
+        }
+
+        long start() {
+            return span.occurrence().startedAtNanos();
+        }
+
+        long end() {
+            return span.occurrence().startedAtNanos() + span.occurrence().lastedNanos();
+        }
+    }
+
+    private static final class Pending {
+        final long arrivedAt = System.nanoTime();
+        final ArrayList<Log.Span> spans = new ArrayList<>();
+        final ArrayList<Log.Event> events = new ArrayList<>();
+        int dropped;
+
+        boolean hasRoom(int max) {
+            if (spans.size() + events.size() < max) {
+                return true;
+            } else {
+                dropped++;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Creates an assembler which waits a minute for traces to complete and holds at most
+     * 10,000 pending traces of 1,000 logs each.
+     *
+     * @param onComplete Called with each trace once its root span arrives, on the thread which logged it.
+     */
+    public TraceAssembler(Consumer<Trace> onComplete) {
+        this(onComplete, DEFAULT_TIMEOUT, DEFAULT_MAX_PENDING_TRACES, DEFAULT_MAX_LOGS_PER_TRACE);
+    }
+
+    /**
+     * @param onComplete       Called with each trace once its root span arrives, on the thread which logged it.
+     * @param timeout          How long to wait for the root span of a trace after the first part of it arrives.
+     * @param maxPendingTraces The most traces to hold at once.
+     * @param maxLogsPerTrace  The most spans and events to hold for a single trace.
+     */
+    public TraceAssembler(Consumer<Trace> onComplete, Duration timeout, int maxPendingTraces, int maxLogsPerTrace) {
+        this.onComplete = Objects.requireNonNull(onComplete, "onComplete must not be null");
+        Objects.requireNonNull(timeout, "timeout must not be null");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        if (maxPendingTraces <= 0) {
+            throw new IllegalArgumentException("maxPendingTraces must be positive");
+        }
+        if (maxLogsPerTrace <= 0) {
+            throw new IllegalArgumentException("maxLogsPerTrace must be positive");
+        }
+
+        this.timeout = timeout.toNanos();
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxLogsPerTrace = maxLogsPerTrace;
+        this.lock = new ReentrantLock();
+        this.pending = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void log(Log log) {
+        var enclosing = enclosingSpan(log.context());
+        if (log instanceof Log.Span span && enclosing.isEmpty()) {
+            Pending trace;
+            lock.lock();
+            try {
+                evictExpired();
+                trace = pending.remove(span.flake());
+            } finally {
+                lock.unlock();
+            }
+            onComplete.accept(assemble(span, trace == null ? new Pending() : trace));
+            return;
+        }
+
+        if (enclosing.isEmpty()) {
+            return;
+        }
+
+        var root = enclosing.get().rootSpan().orElse(enclosing.get()).spanId();
+        lock.lock();
+        try {
+            evictExpired();
+            var trace = pending.get(root);
+            if (trace == null) {
+                if (pending.size() >= maxPendingTraces) {
+                    evictEldest();
+                }
+                trace = new Pending();
+                pending.put(root, trace);
+            }
+
+            if (trace.hasRoom(maxLogsPerTrace)) {
+                if (log instanceof Log.Span span) {
+                    trace.spans.add(span);
+                } else if (log instanceof Log.Event event) {
+                    trace.events.add(event);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many incomplete traces have been dropped, either for timing out or to make room.
+     */
+    public long droppedTraces() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every pending trace.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            dropped += pending.size();
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TraceAssembler[timeout=" + Duration.ofNanos(timeout)
+                + ", maxPendingTraces=" + maxPendingTraces
+                + ", maxLogsPerTrace=" + maxLogsPerTrace + "]";
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void evictExpired() {
+        var now = System.nanoTime();
+        for (Iterator<Pending> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next().arrivedAt < timeout) {
+                break;
+            }
+            iterator.remove();
+            dropped++;
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void evictEldest() {
+        var iterator = pending.values().iterator();
+        iterator.next();
+        iterator.remove();
+        dropped++;
+    }
+
+    /**
+     * @return The innermost span the context is inside of, which may be the context itself.
+     */
+    private static Optional<Log.Context.Child.Span> enclosingSpan(Log.Context context) {
+        if (context instanceof Log.Context.Child.Span span) {
+            return Optional.of(span);
+        } else {
+            return context.parentSpan();
+        }
+    }
+
+    private static final class Builder {
+        final Log.Span span;
+        final ArrayList<Builder> children = new ArrayList<>();
+        final ArrayList<Log.Event> events = new ArrayList<>();
+
+        Builder(Log.Span span) {
+            this.span = span;
+        }
+
+        Node build() {
+            var nodes = new ArrayList<Node>(children.size());
+            for (var child : children) {
+                nodes.add(child.build());
+            }
+            nodes.sort(Comparator.comparingLong(Node::start));
+            return new Node(span, nodes, events, selfTime(span, nodes));
+        }
+    }
+
+    private static Trace assemble(Log.Span rootSpan, Pending trace) {
+        var root = new Builder(rootSpan);
+        var bySpanId = new HashMap<Flake, Builder>();
+        bySpanId.put(rootSpan.flake(), root);
+        for (var span : trace.spans) {
+            bySpanId.put(span.flake(), new Builder(span));
+        }
+
+        for (var span : trace.spans) {
+            var parent = enclosingSpan(span.context())
+                    .map(enclosing -> bySpanId.get(enclosing.spanId()))
+                    .orElse(root);
+            (parent == null ? root : parent).children.add(bySpanId.get(span.flake()));
+        }
+        for (var event : trace.events) {
+            var parent = enclosingSpan(event.context())
+                    .map(enclosing -> bySpanId.get(enclosing.spanId()))
+                    .orElse(root);
+            (parent == null ? root : parent).events.add(event);
+        }
+
+        var node = root.build();
+        var criticalPath = new ArrayList<Node>();
+        criticalPath(node, criticalPath);
+        criticalPath.sort(Comparator.comparingLong(Node::start));
+        return new Trace(node, criticalPath, trace.dropped);
+    }
+
+    /**
+     * The span's duration minus the time covered by at least one of its children.
+     */
+    private static long selfTime(Log.Span span, List<Node> childrenByStart) {
+        var start = span.occurrence().startedAtNanos();
+        var end = start + span.occurrence().lastedNanos();
+        var covered = 0L;
+        var coveredUntil = start;
+        for (var child : childrenByStart) {
+            var from = Math.max(child.start(), coveredUntil);
+            var to = Math.min(child.end(), end);
+            if (to > from) {
+                covered += to - from;
+                coveredUntil = to;
+            }
+        }
+        return span.occurrence().lastedNanos() - covered;
+    }
+
+    /**
+     * Walks back from the end of the span, each time following the child which finished last
+     * before the point reached so far.
+     */
+    private static void criticalPath(Node node, List<Node> path) {
+        path.add(node);
+        var byEnd = new ArrayList<>(node.children());
+        byEnd.sort(Comparator.comparingLong(Node::end).reversed());
+        var cursor = node.end();
+        for (var child : byEnd) {
+            if (child.end() <= cursor && child.start() < cursor) {
+                criticalPath(child, path);
+                cursor = child.start();
+            }
+        }
+    }
+}